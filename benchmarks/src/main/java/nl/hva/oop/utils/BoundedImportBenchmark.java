@@ -0,0 +1,98 @@
+package nl.hva.oop.utils;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compares the import of a file per polling station into {@link CSVImporter}, which keeps every region in memory,
+ * with a {@link BoundedRollupImporter} at several memory budgets. The file is generated with the
+ * {@link ElectionDataGenerator}: the municipalities, lists and candidates of TK2023 with a number of polling stations
+ * per municipality. Per import it reports the time, the runs the bounded import wrote, the peak heap usage and the
+ * heap the importer retains after a full GC. Every import runs once, on a cold importer, like
+ * {@link ScalingBenchmark}. Run it with the serial collector for stable numbers, e.g.
+ * {@code java -XX:+UseSerialGC -Xmx2g -cp benchmarks.jar nl.hva.oop.utils.BoundedImportBenchmark}.
+ * <p>
+ * Usage: {@code BoundedImportBenchmark [pollingStationsPerMunicipality] [budget in KB...]}, the defaults are
+ * 10 polling stations and budgets of 256 KB, 4 MB and 64 MB.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public class BoundedImportBenchmark {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+
+    public static void main(String[] args) throws IOException {
+        int pollingStations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long[] budgets = args.length > 1 ? new long[args.length - 1] : new long[]{256 << 10, 4 << 20, 64 << 20};
+        for (int i = 1; i < args.length; i++) {
+            budgets[i - 1] = Long.parseLong(args[i]) << 10;
+        }
+
+        ElectionDataGenerator generator = new ElectionDataGenerator("TK2023",
+                ElectionDataGenerator.TK2023_MUNICIPALITIES, 26, 40, 2023);
+        Path csvFile = Files.createTempFile("pollingstations_", ".csv");
+        try {
+            generator.write(csvFile, pollingStations);
+            System.out.printf("File: %d polling stations per municipality, %d rows, %d MB%n", pollingStations,
+                    generator.rows(pollingStations), Files.size(csvFile) >> 20);
+            System.out.printf("%-24s %10s %6s %12s %14s %14s%n", "Import", "Time (ms)", "Runs", "Spilled (KB)",
+                    "Peak heap (MB)", "Retained (MB)");
+
+            long used = resetPeaks();
+            long startTime = System.nanoTime();
+            CSVImporter importer = new CSVImporter();
+            try {
+                importer.importCSVMapped(csvFile.toString());
+                print("CSVImporter", System.nanoTime() - startTime, 0, 0, used);
+            } catch (OutOfMemoryError e) {
+                importer = null;
+                System.out.printf("%-24s %s%n", "CSVImporter", "out of memory");
+            }
+            Reference.reachabilityFence(importer);
+            importer = null;
+
+            for (long budget : budgets) {
+                used = resetPeaks();
+                startTime = System.nanoTime();
+                BoundedRollupImporter bounded = new BoundedRollupImporter(budget);
+                bounded.importCSV(csvFile.toString());
+                print("bounded, " + (budget >> 10) + " KB", System.nanoTime() - startTime, bounded.getRunCount(),
+                        bounded.getSpilledBytes(), used);
+                Reference.reachabilityFence(bounded);
+            }
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    /**
+     * Starts an import from the same, collected heap.
+     * @return The used heap after the collection
+     */
+    private static long resetPeaks() {
+        System.gc();
+        HEAP_POOLS.forEach(MemoryPoolMXBean::resetPeakUsage);
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void print(String name, long elapsed, int runs, long spilledBytes, long usedBefore) {
+        // The sum of the peaks of the pools is an upper bound of the peak of the whole heap
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        System.gc();
+        long retained = MEMORY.getHeapMemoryUsage().getUsed() - usedBefore;
+        System.out.printf("%-24s %10d %6d %12d %14d %14d%n", name, elapsed / 1_000_000, runs, spilledBytes >> 10,
+                peakHeap >> 20, retained >> 20);
+    }
+}
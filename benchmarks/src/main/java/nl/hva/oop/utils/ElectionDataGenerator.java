@@ -0,0 +1,370 @@
+package nl.hva.oop.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Writes synthetic election results in the Kiesraad CSV format, to test the importers at sizes
+ * (e.g. 10x or 100x TK2023) of which no real file is at hand.
+ * The files have the header and 16 columns of TK2023_uitslag.csv and the same region code hierarchy:
+ * the country "Nederland;L528", provinces "P.." (parent L528), kieskringen "K.." (parent province, grandparent L528)
+ * and municipalities "G...." (parent kieskring, grandparent province). With polling stations, every municipality
+ * is followed by its polling stations "SB1", "SB2", ... (parent municipality, grandparent kieskring), like the files
+ * the Kiesraad publishes per polling station; the codes of the polling stations are unique per municipality only,
+ * their names are unique.
+ * <p>
+ * The output only depends on the arguments: the same seed always gives the same file.
+ * Votes are generated per municipality and added up for the kieskringen, provinces and the country,
+ * so every level reports the sum of the level below it, just like the real results. The votes of a municipality
+ * are divided over its polling stations, so they add up to the municipality exactly.
+ * Usage: {@code ElectionDataGenerator <csvFile> [municipalities] [parties] [candidatesPerParty] [seed]
+ * [pollingStationsPerMunicipality]}
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class ElectionDataGenerator {
+    private static final String HEADER = "Regio;RegioCode;OuderRegioCode;GrootOuderRegioCode;Verkiezing;LijstNummer;"
+            + "LijstNaam;KandidaatNummer;KandidaatInitialen;KandidaatVoornaam;KandidaatTussenvoegsel;"
+            + "KandidaatAchternaam;KandidaatWoonplaats;KandidaatGeslacht;VeldType;Waarde";
+    private static final String COUNTRY_NAME = "Nederland";
+    private static final String COUNTRY_CODE = "L528";
+    private static final int SEATS = 150;
+
+    // The TK2023 file has 12 provinces, 20 kieskringen and 342 municipalities
+    private static final int MAX_PROVINCES = 12;
+    private static final int MAX_KIESKRINGEN = 20;
+    public static final int TK2023_MUNICIPALITIES = 342;
+
+    // Region rows without a party: the statistics CSVImporter keeps for the country
+    private static final int STAT_ROWS = 5;
+
+    private static final String[] PROVINCE_NAMES = {"Groningen", "Fryslân", "Drenthe", "Overijssel", "Flevoland",
+            "Gelderland", "Utrecht", "Noord-Holland", "Zuid-Holland", "Zeeland", "Noord-Brabant", "Limburg"};
+    private static final String[] MUNICIPALITY_NAMES = {"'s-Hertogenbosch", "Súdwest-Fryslân", "'s-Gravenhage",
+            "Amsterdam", "Zwolle", "Delft", "Leiden", "Tilburg", "Breda", "Eindhoven", "Haarlem", "Almere"};
+    private static final String[] PARTY_NAMES = {"VVD", "D66", "GROENLINKS / Partij van de Arbeid (PvdA)",
+            "PVV (Partij voor de Vrijheid)", "CDA", "SP (Socialistische Partij)", "Forum voor Democratie",
+            "Partij voor de Dieren", "ChristenUnie", "Staatkundig Gereformeerde Partij (SGP)", "DENK", "Volt",
+            "JA21", "Nieuw Sociaal Contract", "BBB"};
+    private static final String[] FIRST_NAMES = {"Dilan", "Frans", "Geert", "Pieter", "Henri", "Caroline", "Rob",
+            "Ömer", "Esther", "Mirjam", "Laurens", "Lilian", "Stephan", "Joost"};
+    private static final String[] PREFIXES = {"", "", "", "van", "de", "van der", "van den"};
+    private static final String[] LAST_NAMES = {"Yeşilgöz-Zegerius", "Timmermans", "Wilders", "Omtzigt",
+            "Bontenbal", "Jetten", "Kuiken", "Bikker", "Ouwehand", "Dassen", "Stoffer", "Eerdmans", "Marijnissen"};
+    private static final String[] RESIDENCES = {"'s-Gravenhage", "Amsterdam", "'s-Hertogenbosch", "Utrecht",
+            "Enschede", "Súdwest-Fryslân", "Rotterdam", "Maastricht"};
+
+    private final String election;
+    private final int provinces;
+    private final int kieskringen;
+    private final int municipalities;
+    private final int parties;
+    private final int candidatesPerParty;
+    private final long seed;
+
+    // One entry per party, and per party and candidate (index party * candidatesPerParty + candidate)
+    private final String[] partyNames;
+    private final String[] candidateColumns;
+    private final double[] partyWeights;
+
+    /**
+     * @param election Election id for the "Verkiezing" column, e.g. "TK2023"
+     * @param municipalities Number of municipalities, the leaves of the region hierarchy
+     * @param parties Number of parties (lists)
+     * @param candidatesPerParty Number of candidates on every list
+     * @param seed Seed of the random values
+     */
+    public ElectionDataGenerator(String election, int municipalities, int parties, int candidatesPerParty, long seed) {
+        if (municipalities < 1 || parties < 1 || candidatesPerParty < 1) {
+            throw new IllegalArgumentException("There must be at least one municipality, party and candidate");
+        }
+        this.election = election;
+        this.municipalities = municipalities;
+        this.provinces = Math.min(MAX_PROVINCES, municipalities);
+        this.kieskringen = Math.min(MAX_KIESKRINGEN, municipalities);
+        this.parties = parties;
+        this.candidatesPerParty = candidatesPerParty;
+        this.seed = seed;
+
+        Random random = new Random(seed);
+        partyNames = new String[parties];
+        partyWeights = new double[parties];
+        candidateColumns = new String[parties * candidatesPerParty];
+        for (int p = 0; p < parties; p++) {
+            partyNames[p] = p < PARTY_NAMES.length ? PARTY_NAMES[p] : "Partij " + (p + 1);
+            // A few big parties and a long tail of small ones
+            partyWeights[p] = 0.2 + random.nextDouble() * 2.0 / (1 + p / 4.0);
+
+            for (int c = 0; c < candidatesPerParty; c++) {
+                String firstName = pick(random, FIRST_NAMES);
+                candidateColumns[p * candidatesPerParty + c] = (c + 1) + ";" + firstName.charAt(0) + ".;" + firstName
+                        + ";" + pick(random, PREFIXES) + ";" + pick(random, LAST_NAMES) + ";" + pick(random, RESIDENCES)
+                        + ";" + (random.nextBoolean() ? "man" : "vrouw");
+            }
+        }
+    }
+
+    /**
+     * Creates a generator for a file of about the given number of rows, by choosing the number of municipalities.
+     * @param election Election id for the "Verkiezing" column
+     * @param rows Approximate number of data rows
+     * @param parties Number of parties
+     * @param candidatesPerParty Number of candidates on every list
+     * @param seed Seed of the random values
+     * @return The generator
+     */
+    public static ElectionDataGenerator forRows(String election, long rows, int parties, int candidatesPerParty,
+                                                long seed) {
+        long rowsPerRegion = STAT_ROWS + (long) parties * (1 + candidatesPerParty);
+        long regions = (rows + rowsPerRegion - 1) / rowsPerRegion;
+        int municipalities = (int) Math.max(1, Math.min(Integer.MAX_VALUE, regions - 1 - MAX_PROVINCES - MAX_KIESKRINGEN));
+        return new ElectionDataGenerator(election, municipalities, parties, candidatesPerParty, seed);
+    }
+
+    /**
+     * @return Number of data rows (without the header) that {@link #write(Path)} writes
+     */
+    public long rows() {
+        return rows(0);
+    }
+
+    /**
+     * @param pollingStations Number of polling stations per municipality
+     * @return Number of data rows (without the header) that {@link #write(Path, int)} writes
+     */
+    public long rows(int pollingStations) {
+        long rowsPerRegion = STAT_ROWS + (long) parties * (1 + candidatesPerParty);
+        long regions = 1 + provinces + kieskringen + municipalities * (1L + pollingStations);
+        long chosen = 0;
+        for (int seats : seats(aggregate(_ -> true))) {
+            chosen += Math.min(seats, candidatesPerParty);
+        }
+        return regions * rowsPerRegion + parties + chosen;
+    }
+
+    /**
+     * Writes the CSV file: the country, then every province followed by its kieskringen,
+     * with the municipalities of each kieskring directly after it.
+     * @param csvFile File to write, overwritten if it exists
+     * @throws IOException If the file can't be written
+     */
+    public void write(Path csvFile) throws IOException {
+        write(csvFile, 0);
+    }
+
+    /**
+     * Writes the CSV file like {@link #write(Path)}, with the polling stations of every municipality
+     * directly after it.
+     * @param csvFile File to write, overwritten if it exists
+     * @param pollingStations Number of polling stations per municipality, 0 for none
+     * @throws IOException If the file can't be written
+     */
+    public void write(Path csvFile, int pollingStations) throws IOException {
+        if (pollingStations < 0) {
+            throw new IllegalArgumentException("The number of polling stations can't be negative");
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+
+            long[] countryVotes = aggregate(_ -> true);
+            writeRegion(out, COUNTRY_NAME, COUNTRY_CODE, "", "", countryVotes, seats(countryVotes));
+
+            for (int p = 0; p < provinces; p++) {
+                int province = p;
+                String provinceCode = provinceCode(p);
+                writeRegion(out, provinceName(p), provinceCode, COUNTRY_CODE, "",
+                        aggregate(m -> kieskring(m) % provinces == province), null);
+
+                for (int k = p; k < kieskringen; k += provinces) {
+                    int kieskring = k;
+                    String kieskringCode = "K" + (k + 1);
+                    writeRegion(out, "Kieskring " + (k + 1), kieskringCode, provinceCode, COUNTRY_CODE,
+                            aggregate(m -> kieskring(m) == kieskring), null);
+
+                    for (int m = k; m < municipalities; m += kieskringen) {
+                        String municipalityCode = String.format("G%04d", m + 1);
+                        long[] votes = municipalityVotes(m);
+                        writeRegion(out, municipalityName(m), municipalityCode, kieskringCode, provinceCode, votes,
+                                null);
+                        for (int s = 0; s < pollingStations; s++) {
+                            writeRegion(out, municipalityName(m) + ", stembureau " + (s + 1), "SB" + (s + 1),
+                                    municipalityCode, kieskringCode, share(votes, s, pollingStations), null);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int kieskring(int municipality) {
+        return municipality % kieskringen;
+    }
+
+    private String provinceCode(int province) {
+        // Real province codes run from P20 (Groningen) to P31 (Limburg)
+        return "P" + (20 + province);
+    }
+
+    private String provinceName(int province) {
+        return PROVINCE_NAMES[province];
+    }
+
+    private String municipalityName(int municipality) {
+        // Region names must be unique, CSVImporter keeps the parties of a region by its name
+        return municipality < MUNICIPALITY_NAMES.length ? MUNICIPALITY_NAMES[municipality]
+                : "Gemeente " + (municipality + 1);
+    }
+
+    /**
+     * Generates the votes of one municipality. Every municipality has its own random sequence,
+     * so a municipality gets the same votes however often it's generated.
+     * @return Votes per party and candidate, followed by the blank votes, invalid votes and non-voters
+     */
+    private long[] municipalityVotes(int municipality) {
+        SplittableRandom random = new SplittableRandom(seed * 31 + municipality);
+        long[] votes = new long[parties * candidatesPerParty + 3];
+        int size = 500 + random.nextInt(5000);
+        for (int p = 0; p < parties; p++) {
+            for (int c = 0; c < candidatesPerParty; c++) {
+                // The first candidate (lijsttrekker) gets most of the votes of a list
+                double share = c == 0 ? 1.0 : 0.1 / c;
+                votes[p * candidatesPerParty + c] = (long) (size * partyWeights[p] * share * random.nextDouble());
+            }
+        }
+        int valid = (int) Math.min(Integer.MAX_VALUE, sum(votes, 0, parties * candidatesPerParty));
+        votes[votes.length - 3] = random.nextInt(1 + valid / 200);
+        votes[votes.length - 2] = random.nextInt(1 + valid / 300);
+        votes[votes.length - 1] = random.nextInt(1 + valid / 3);
+        return votes;
+    }
+
+    /**
+     * Divides votes over a number of polling stations: every station gets an equal part of every value,
+     * and the first stations one more vote for the remainder.
+     * @return The votes of one polling station
+     */
+    private static long[] share(long[] votes, int pollingStation, int pollingStations) {
+        long[] share = new long[votes.length];
+        for (int i = 0; i < votes.length; i++) {
+            share[i] = votes[i] / pollingStations + (pollingStation < votes[i] % pollingStations ? 1 : 0);
+        }
+        return share;
+    }
+
+    private long[] aggregate(IntPredicate municipalityFilter) {
+        long[] total = new long[parties * candidatesPerParty + 3];
+        for (int m = 0; m < municipalities; m++) {
+            if (municipalityFilter.test(m)) {
+                long[] votes = municipalityVotes(m);
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += votes[i];
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Distributes the seats over the parties with the D'Hondt method, like the Kiesraad does.
+     */
+    private int[] seats(long[] votes) {
+        long[] listVotes = new long[parties];
+        for (int p = 0; p < parties; p++) {
+            listVotes[p] = sum(votes, p * candidatesPerParty, (p + 1) * candidatesPerParty);
+        }
+        int[] seats = new int[parties];
+        for (int seat = 0; seat < SEATS; seat++) {
+            int best = 0;
+            for (int p = 1; p < parties; p++) {
+                // listVotes[p] / (seats[p] + 1) > listVotes[best] / (seats[best] + 1)
+                if (listVotes[p] * (seats[best] + 1) > listVotes[best] * (seats[p] + 1)) {
+                    best = p;
+                }
+            }
+            seats[best]++;
+        }
+        return seats;
+    }
+
+    private void writeRegion(BufferedWriter out, String name, String code, String parentCode, String grandParentCode,
+                             long[] votes, int[] seats) throws IOException {
+        String region = name + ";" + code + ";" + parentCode + ";" + grandParentCode + ";" + election + ";";
+        int candidates = parties * candidatesPerParty;
+        long valid = sum(votes, 0, candidates);
+        long blank = votes[candidates];
+        long invalid = votes[candidates + 1];
+        long turnout = valid + blank + invalid;
+
+        writeRow(out, region, ";;;;;;;;;Kiesgerechtigden", turnout + votes[candidates + 2]);
+        writeRow(out, region, ";;;;;;;;;Opkomst", turnout);
+        writeRow(out, region, ";;;;;;;;;AantalGeldigeStemmen", valid);
+        writeRow(out, region, ";;;;;;;;;AantalBlancoStemmen", blank);
+        writeRow(out, region, ";;;;;;;;;AantalOngeldigeStemmen", invalid);
+
+        for (int p = 0; p < parties; p++) {
+            String list = (p + 1) + ";" + partyNames[p] + ";";
+            writeRow(out, region, list + ";;;;;;;LijstAantalStemmen",
+                    sum(votes, p * candidatesPerParty, (p + 1) * candidatesPerParty));
+            if (seats != null) {
+                writeRow(out, region, list + ";;;;;;;LijstAantalZetels", seats[p]);
+            }
+            for (int c = 0; c < candidatesPerParty; c++) {
+                String candidate = list + candidateColumns[p * candidatesPerParty + c];
+                writeRow(out, region, candidate + ";KandidaatAantalStemmen", votes[p * candidatesPerParty + c]);
+                // Simplified: the seats of a list go to its first candidates
+                if (seats != null && c < seats[p]) {
+                    out.write(region);
+                    out.write(candidate);
+                    out.write(";KandidaatGekozen;True");
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    private static void writeRow(BufferedWriter out, String region, String columns, long value) throws IOException {
+        out.write(region);
+        out.write(columns);
+        out.write(';');
+        out.write(Long.toString(value));
+        out.newLine();
+    }
+
+    private static long sum(long[] values, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: ElectionDataGenerator <csvFile> [municipalities] [parties] [candidatesPerParty]"
+                    + " [seed] [pollingStationsPerMunicipality]");
+            return;
+        }
+        int municipalities = args.length > 1 ? Integer.parseInt(args[1]) : TK2023_MUNICIPALITIES;
+        int parties = args.length > 2 ? Integer.parseInt(args[2]) : 26;
+        int candidates = args.length > 3 ? Integer.parseInt(args[3]) : 40;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 2023;
+        int pollingStations = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+        ElectionDataGenerator generator = new ElectionDataGenerator("TK2023", municipalities, parties, candidates, seed);
+        long startTime = System.nanoTime();
+        generator.write(Path.of(args[0]), pollingStations);
+        System.out.println("Wrote " + generator.rows(pollingStations) + " rows to " + args[0] + " in "
+                + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+    }
+}
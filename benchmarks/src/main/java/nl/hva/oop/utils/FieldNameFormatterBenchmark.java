@@ -0,0 +1,33 @@
+package nl.hva.oop.utils;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FieldNameFormatter#toHumanReadable(String)} on the veldType values of the country statistics.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldNameFormatterBenchmark {
+    private final String[] fieldTypes = {
+            "AantalBlancoStemmen",
+            "AantalGeldigeStemmen",
+            "AantalOngeldigeStemmen",
+            "Kiesgerechtigden",
+            "Opkomst"
+    };
+    private int next;
+
+    @Benchmark
+    public String toHumanReadable() {
+        String fieldType = fieldTypes[next];
+        next = next + 1 == fieldTypes.length ? 0 : next + 1;
+        return FieldNameFormatter.toHumanReadable(fieldType);
+    }
+}
@@ -0,0 +1,83 @@
+package nl.hva.oop.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * The bundled TK2023-shaped fixture the benchmarks run against, so they need no network access or real data file.
+ * It has the header and columns of TK2023_uitslag.csv, with a country, 3 provinces, 6 kieskringen and 18 municipalities.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class Fixture {
+    private static final String RESOURCE = "/TK2023_fixture.csv";
+
+    /**
+     * Number of data rows (lines without the header) in the fixture.
+     */
+    static final int ROWS = 2348;
+
+    private Fixture() {
+    }
+
+    /**
+     * Copies the fixture to a temporary file, because the importers read files and not class path resources.
+     * @return Path of the temporary copy
+     */
+    static Path copyToTempFile() throws IOException {
+        Path file = Files.createTempFile("TK2023_fixture", ".csv");
+        try (InputStream in = open()) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    /**
+     * @return The whole fixture in a heap buffer
+     */
+    static ByteBuffer bytes() {
+        try (InputStream in = open()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Start offset (inclusive) and end offset (exclusive) of every data row in {@link #bytes()}, as pairs
+     */
+    static int[] rowOffsets(ByteBuffer bytes) {
+        int[] offsets = new int[ROWS * 2];
+        int count = 0;
+        int lineStart = 0;
+        boolean isHeader = true;
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) == '\n') {
+                if (!isHeader) {
+                    offsets[count++] = lineStart;
+                    offsets[count++] = i;
+                }
+                isHeader = false;
+                lineStart = i + 1;
+            }
+        }
+        if (count != offsets.length) {
+            throw new IllegalStateException("Expected " + ROWS + " rows in " + RESOURCE + ", found " + count / 2);
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    private static InputStream open() throws IOException {
+        InputStream in = Fixture.class.getResourceAsStream(RESOURCE);
+        if (in == null) {
+            throw new IOException(RESOURCE + " not found on the class path");
+        }
+        return in;
+    }
+}
@@ -0,0 +1,94 @@
+package nl.hva.oop.utils;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * End-to-end import of the fixture with every import mode, of a gzipped copy of it, and of only one of its provinces.
+ * Scores are rows per second; with {@code -prof gc}, gc.alloc.rate.norm is the number of bytes allocated per row.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(Fixture.ROWS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+    @Param({"1", "4"})
+    private int threads;
+
+    private Path csvFile;
+    private String csvFilePath;
+    private Path gzipFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csvFile = Fixture.copyToTempFile();
+        csvFilePath = csvFile.toString();
+        // Writes the snapshot that importCSVCached loads
+        new CSVImporter().importCSVCached(csvFilePath);
+
+        gzipFile = Path.of(csvFilePath + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+            Files.copy(csvFile, out);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(csvFilePath + ".snapshot"));
+        Files.deleteIfExists(gzipFile);
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public CSVImporter importCSV() {
+        CSVImporter importer = new CSVImporter();
+        importer.importCSV(csvFilePath);
+        return importer;
+    }
+
+    @Benchmark
+    public CSVImporter importCSVMapped() {
+        CSVImporter importer = new CSVImporter();
+        importer.importCSVMapped(csvFilePath);
+        return importer;
+    }
+
+    @Benchmark
+    public CSVImporter importCSVMappedGzip() {
+        CSVImporter importer = new CSVImporter();
+        importer.importCSVMapped(gzipFile.toString());
+        return importer;
+    }
+
+    @Benchmark
+    public CSVImporter importCSVMappedOneProvince() {
+        CSVImporter importer = new CSVImporter();
+        importer.setRowFilter(RowFilter.all().withinRegions("P20"));
+        importer.importCSVMapped(csvFilePath);
+        return importer;
+    }
+
+    @Benchmark
+    public CSVImporter importCSVParallel() {
+        CSVImporter importer = new CSVImporter();
+        importer.importCSVParallel(csvFilePath, threads);
+        return importer;
+    }
+
+    @Benchmark
+    public CSVImporter importCSVCached() {
+        CSVImporter importer = new CSVImporter();
+        importer.importCSVCached(csvFilePath);
+        return importer;
+    }
+}
@@ -0,0 +1,109 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.Municipality;
+import nl.hva.oop.models.Province;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the heap the regions of a TK2023 import retain: the {@link RegionRegistry} of the importer, which keeps
+ * one object per region code, against one Municipality object per municipality row, which is what the importer kept
+ * before it had the registry. The per-row objects are rebuilt from the same file with the {@link ElectionCSVParser},
+ * creating them the way the importer used to. What the objects retain is the growth of the used heap after a full GC
+ * when they're created; the registry itself is a few arrays with an entry per region, too small to measure this way.
+ * Run it with the serial collector and a fixed heap size for stable numbers,
+ * e.g. {@code java -XX:+UseSerialGC -Xms1g -Xmx1g}.
+ * <p>
+ * Usage: {@code RegionMemoryBenchmark [csv file]}, e.g. with TK2023_uitslag.csv; without a file it generates
+ * a file with the size of TK2023 with the {@link ElectionDataGenerator}.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public class RegionMemoryBenchmark {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path csvFile = args.length > 0 ? Path.of(args[0]) : Files.createTempFile("TK2023_", ".csv");
+        try {
+            if (args.length == 0) {
+                new ElectionDataGenerator("TK2023", ElectionDataGenerator.TK2023_MUNICIPALITIES, 26, 40, 2023)
+                        .write(csvFile);
+            }
+            run(csvFile);
+        } finally {
+            if (args.length == 0) {
+                Files.deleteIfExists(csvFile);
+            }
+        }
+    }
+
+    private static void run(Path csvFile) throws IOException, InterruptedException {
+        long used = usedHeap();
+        StringDictionary dictionary = new StringDictionary();
+        CSVImporter importer = new CSVImporter(dictionary);
+        ImportStatistics statistics = importer.importCSVMapped(csvFile.toString());
+        long importerHeap = -used + (used = usedHeap());
+        List<Municipality> perRow = municipalityPerRow(csvFile, dictionary);
+        long perRowHeap = -used + usedHeap();
+
+        RegionRegistry regions = importer.getSnapshot().getRegions();
+        System.out.println("File: " + csvFile + ", " + statistics.getRowsRead() + " rows");
+        System.out.printf("Before: a Municipality per row, %d objects retaining %d KB%n", perRow.size(),
+                perRowHeap >> 10);
+        System.out.printf("After:  the RegionRegistry, %d regions (%d municipalities)%n", regions.size(),
+                regions.getMunicipalities().size());
+        System.out.printf("The importer retains %d KB; with a Municipality per row it retained %.0f%% more%n",
+                importerHeap >> 10, 100.0 * perRowHeap / importerHeap);
+    }
+
+    /**
+     * Parses the file and creates a Municipality for every municipality row, below the province of its parent
+     * or grandparent code, like the importer did before it had the registry.
+     */
+    private static List<Municipality> municipalityPerRow(Path csvFile, StringDictionary dictionary)
+            throws IOException {
+        Map<String, Province> provinces = new HashMap<>();
+        List<Municipality> municipalities = new ArrayList<>();
+        ElectionCSVParser.parse(csvFile, dictionary, record -> {
+            if (record.regionCodeStartsWith('P') && record.isParentRegionCode("L528")) {
+                provinces.computeIfAbsent(record.getRegionCode(),
+                        code -> new Province(record.getRegion(), code, null, dictionary));
+            } else if (record.regionCodeStartsWith('K') || record.regionCodeStartsWith('G')) {
+                Province province = provinces.get(record.getParentRegionCode());
+                if (province == null) {
+                    province = provinces.get(record.getGrandParentRegionCode());
+                }
+                if (province != null) {
+                    municipalities.add(new Municipality(record.getRegion(), record.getRegionCode(), province,
+                            dictionary));
+                }
+            }
+        });
+        return municipalities;
+    }
+
+    /**
+     * Collects until the used heap stops shrinking, because the garbage of the mapped file is only freed after
+     * its cleaner ran on another thread.
+     */
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long after = MEMORY.getHeapMemoryUsage().getUsed();
+            if (after >= used) {
+                break;
+            }
+            used = after;
+            Thread.sleep(100);
+        }
+        return used;
+    }
+}
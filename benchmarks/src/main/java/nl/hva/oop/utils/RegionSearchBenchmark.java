@@ -0,0 +1,67 @@
+package nl.hva.oop.utils;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in a {@link RegionSearchIndex} of a generated import with as many municipalities as TK2023.
+ * Scores are nanoseconds per lookup.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegionSearchBenchmark {
+    // An exact name, a prefix and a name with a typo, with and without accents and "'s-"
+    private static final String[] EXACT = {"Amsterdam", "'s-Hertogenbosch", "sudwest fryslan", "Gemeente 200"};
+    private static final String[] PREFIX = {"amst", "hertogen", "sudw", "gemeente 2"};
+    private static final String[] SIMILAR = {"Amstrdam", "s-Hertogenbos", "Sudwest-Frieslan", "Gemeente 2o0"};
+
+    private RegionSearchIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path csvFile = Files.createTempFile("regions", ".csv");
+        try {
+            new ElectionDataGenerator("TK2023", ElectionDataGenerator.TK2023_MUNICIPALITIES, 2, 2, 1).write(csvFile);
+            CSVImporter importer = new CSVImporter();
+            importer.importCSVMapped(csvFile.toString());
+            index = new RegionSearchIndex(importer);
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    private String next(String[] queries) {
+        next = next + 1 == queries.length ? 0 : next + 1;
+        return queries[next];
+    }
+
+    @Benchmark
+    public Object findExact() {
+        return index.findExact(next(EXACT));
+    }
+
+    @Benchmark
+    public Object findByPrefix() {
+        return index.findByPrefix(next(PREFIX), 5);
+    }
+
+    @Benchmark
+    public Object findSimilar() {
+        return index.findSimilar(next(SIMILAR), RegionSearchIndex.MAX_DISTANCE, 5);
+    }
+
+    @Benchmark
+    public Object search() {
+        return index.search(next(SIMILAR), 5);
+    }
+}
@@ -0,0 +1,72 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.ElectionReport;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the report of every region of a generated import with as many municipalities as TK2023, without colors:
+ * once by printing the answer of {@link ElectionReport#region(String)} per region, the way the console app prints
+ * a region, and once with {@link ElectionReport#writeReport(OutputStream)}. Both write the same bytes to a stream
+ * that discards them, so the scores are the rendering and encoding alone. Scores are milliseconds per report.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+    private ElectionReport report;
+    private ElectionSnapshot election;
+    private Set<String> regionNames;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path csvFile = Files.createTempFile("report", ".csv");
+        try {
+            new ElectionDataGenerator("TK2023", ElectionDataGenerator.TK2023_MUNICIPALITIES, 26, 40, 2023)
+                    .write(csvFile);
+            CSVImporter importer = new CSVImporter();
+            importer.importCSVMapped(csvFile.toString());
+            report = new ElectionReport(importer, false);
+            election = importer.getSnapshot();
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+        regionNames = new LinkedHashSet<>();
+        election.getCountries().forEach(country -> regionNames.add(country.getName()));
+        election.getProvinces().forEach(province -> regionNames.add(province.getName()));
+        election.getMunicipalities().forEach(municipality -> regionNames.add(municipality.getName()));
+    }
+
+    @Benchmark
+    public void printRegions() {
+        PrintStream out = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+        out.print(report.countryStats());
+        out.print(report.parties());
+        for (String regionName : regionNames) {
+            Map<String, ?> parties = election.getRegionPartyMap().get(regionName);
+            if (parties != null && !parties.isEmpty()) {
+                out.print(report.region(regionName).text());
+            }
+        }
+        out.flush();
+    }
+
+    @Benchmark
+    public void writeReport() throws IOException {
+        report.writeReport(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,118 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.Party;
+import org.openjdk.jmh.annotations.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-row hot path of the importer: finding the column delimiters of a row and then
+ * {@code handlePartyLine}, {@code parseCandidate} or parsing its value.
+ * The rows of the fixture are used round-robin, after one full pass so parties and candidates already exist,
+ * which is the common case during an import.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowBenchmark {
+    // Column of the value in the fixture
+    private static final int VALUE = 15;
+
+    private ByteBuffer bytes;
+    private int[] rowOffsets;
+    private int next;
+
+    private final ByteCSVRow row = new ByteCSVRow();
+    private final ByteCSVRow schemaRow = new ByteCSVRow();
+    private final LineCSVRow lineRow = new LineCSVRow();
+    private String[] lines;
+
+    private CSVImporter importer;
+    private ElectionRecord record;
+    private Party party;
+    private Party globalParty;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bytes = Fixture.bytes();
+        rowOffsets = Fixture.rowOffsets(bytes);
+        schemaRow.setSchema(CSVSchema.of(bytes, 0, rowOffsets[0] - 1));
+
+        lines = new String[Fixture.ROWS];
+        for (int i = 0; i < Fixture.ROWS; i++) {
+            lines[i] = line(i);
+        }
+
+        importer = new CSVImporter();
+        record = new ElectionRecord(importer.getDictionary());
+        party = new Party(1, "VVD");
+        globalParty = new Party(1, "VVD");
+        for (int i = 0; i < Fixture.ROWS; i++) {
+            nextRecord();
+            importer.handlePartyLine(record, record.getRegion());
+            importer.parseCandidate(record, party, globalParty);
+        }
+    }
+
+    private String line(int i) {
+        int start = rowOffsets[i * 2];
+        byte[] line = new byte[rowOffsets[i * 2 + 1] - start];
+        bytes.get(start, line);
+        return new String(line, StandardCharsets.UTF_8);
+    }
+
+    private int nextRow() {
+        int i = next;
+        next = i + 1 == Fixture.ROWS ? 0 : i + 1;
+        return i;
+    }
+
+    private ElectionRecord nextRecord() {
+        int i = nextRow();
+        return record.set(row.set(bytes, rowOffsets[i * 2], rowOffsets[i * 2 + 1]));
+    }
+
+    @Benchmark
+    public void handlePartyLine() {
+        ElectionRecord r = nextRecord();
+        importer.handlePartyLine(r, r.getRegion());
+    }
+
+    @Benchmark
+    public int parseCandidate() {
+        return importer.parseCandidate(nextRecord(), party, globalParty);
+    }
+
+    /**
+     * Parsing the value on the raw bytes, as the mapped and parallel imports do.
+     */
+    @Benchmark
+    public int parseIntBytes() {
+        int i = nextRow();
+        return row.set(bytes, rowOffsets[i * 2], rowOffsets[i * 2 + 1]).getInt(VALUE, 0);
+    }
+
+    /**
+     * The same with the schema of the fixture, as the parser splits the rows: the columns are stored in their slots,
+     * the unused ones aren't trimmed and nothing is scanned after the last used column.
+     */
+    @Benchmark
+    public int parseIntBytesSchema() {
+        int i = nextRow();
+        return schemaRow.set(bytes, rowOffsets[i * 2], rowOffsets[i * 2 + 1]).getInt(ElectionRecord.VALUE, 0);
+    }
+
+    /**
+     * Finding the columns of a line and parsing the value on its characters, as the BufferedReader import does.
+     */
+    @Benchmark
+    public int parseIntString() {
+        return lineRow.set(lines[nextRow()]).getInt(VALUE, 0);
+    }
+}
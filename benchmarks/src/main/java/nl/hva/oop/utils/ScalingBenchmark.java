@@ -0,0 +1,97 @@
+package nl.hva.oop.utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Measures how the import modes scale with the size of the CSV file: for every scale it generates a TK2023-shaped file
+ * with the {@link ElectionDataGenerator} (scale 1 has the 342 municipalities, 26 lists and 40 candidates per list
+ * of TK2023, scale 10 has ten times as many municipalities, ...) and reports per import mode the import time,
+ * the rows per second and the peak heap usage during the import. The "mapped, only P20" mode is importCSVMapped
+ * with a {@link RowFilter} that keeps one province, to compare a filtered import with a full one.
+ * Every import runs once, on a cold importer, which is what a user of the importer sees.
+ * Run it with a large enough heap, e.g. {@code java -Xmx8g -cp benchmarks.jar nl.hva.oop.utils.ScalingBenchmark 1 10 100}
+ * <p>
+ * Usage: {@code ScalingBenchmark [scale...]}, the default scales are 1, 10 and 100.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public class ScalingBenchmark {
+    private static final int PARTIES = 26;
+    private static final int CANDIDATES_PER_PARTY = 40;
+    private static final long SEED = 2023;
+
+    private static final List<String> MODES = List.of("importCSV", "importCSVMapped", "importCSVParallel",
+            "mapped, only P20");
+
+    public static void main(String[] args) throws IOException {
+        int[] scales = args.length > 0 ? new int[args.length] : new int[]{1, 10, 100};
+        for (int i = 0; i < args.length; i++) {
+            scales[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-6s %12s %10s %-18s %10s %12s %14s%n",
+                "Scale", "Rows", "File (MB)", "Mode", "Time (ms)", "Rows/s", "Peak heap (MB)");
+        for (int scale : scales) {
+            ElectionDataGenerator generator = new ElectionDataGenerator("TK2023",
+                    ElectionDataGenerator.TK2023_MUNICIPALITIES * scale, PARTIES, CANDIDATES_PER_PARTY, SEED);
+            Path csvFile = Files.createTempFile("scale" + scale + "_", ".csv");
+            try {
+                generator.write(csvFile);
+                long rows = generator.rows();
+                long fileSize = Files.size(csvFile);
+
+                for (String mode : MODES) {
+                    measure(mode, csvFile.toString(), (importer, path) -> {
+                        switch (mode) {
+                            case "importCSV" -> importer.importCSV(path);
+                            case "importCSVMapped" -> importer.importCSVMapped(path);
+                            case "mapped, only P20" -> {
+                                importer.setRowFilter(RowFilter.all().withinRegions("P20"));
+                                importer.importCSVMapped(path);
+                            }
+                            default -> importer.importCSVParallel(path);
+                        }
+                    }, scale, rows, fileSize);
+                }
+            } finally {
+                Files.deleteIfExists(csvFile);
+            }
+        }
+    }
+
+    private static void measure(String mode, String csvFilePath, BiConsumer<CSVImporter, String> importMethod,
+                                int scale, long rows, long fileSize) {
+        // Start every import from the same, collected heap
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        CSVImporter importer = new CSVImporter();
+        long startTime = System.nanoTime();
+        try {
+            importMethod.accept(importer, csvFilePath);
+        } catch (OutOfMemoryError e) {
+            importer = null;
+            System.out.printf("%-6d %12d %10d %-18s %s%n", scale, rows, fileSize >> 20, mode, "out of memory");
+            return;
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        // The sum of the peaks of the pools is an upper bound of the peak of the whole heap
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("%-6d %12d %10d %-18s %10d %12.0f %14d%n", scale, rows, fileSize >> 20, mode,
+                elapsed / 1_000_000, rows / (elapsed / 1e9), peakHeap >> 20);
+    }
+}
@@ -0,0 +1,134 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.Server;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of the {@link Server}: starts it on a free port with an import of the fixture (or a given CSV file)
+ * and sends a mix of region, party, candidate and stats queries from many concurrent clients, each on a virtual thread.
+ * Reports the requests per second and the latency percentiles; a warm-up round of a tenth of the requests runs first.
+ * <p>
+ * Usage: {@code ServerLoadTest [concurrency] [requests] [csv file]}, the defaults are 2000 concurrent clients,
+ * 100000 requests and the bundled fixture.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public class ServerLoadTest {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path csvFile = args.length > 2 ? Path.of(args[2]) : Fixture.copyToTempFile();
+
+        CSVImporter importer = new CSVImporter();
+        try {
+            importer.importCSVMapped(csvFile.toString());
+        } finally {
+            if (args.length <= 2) {
+                Files.deleteIfExists(csvFile);
+            }
+        }
+
+        try (Server server = new Server(importer, 0);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clients).build()) {
+            List<URI> uris = queries(importer, "http://localhost:" + server.getPort());
+            run(client, uris, concurrency, Math.max(1, requests / 10));
+
+            long[] latencies = new long[requests];
+            long startTime = System.nanoTime();
+            int errors = run(client, uris, concurrency, latencies);
+            long nanos = System.nanoTime() - startTime;
+
+            Arrays.sort(latencies);
+            System.out.printf("%d requests, %d concurrent clients, %d errors%n", requests, concurrency, errors);
+            System.out.printf("Throughput: %.0f requests/s%n", requests / (nanos / 1e9));
+            System.out.printf("Latency (ms): p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                    percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                    percentile(latencies, 99.9), latencies[latencies.length - 1] / 1e6);
+        }
+    }
+
+    /**
+     * The queries to send: every region, every party in the country, the top candidates of every region,
+     * a typo, an ambiguous prefix and an unknown region.
+     */
+    private static List<URI> queries(CSVImporter importer, String baseUrl) {
+        List<String> paths = new ArrayList<>(List.of("/stats", "/parties", "/region?name=amstrdam",
+                "/region?name=a", "/region?name=onbekend"));
+        for (String region : importer.getRegionPartyMap().keySet()) {
+            paths.add("/region?name=" + encode(region));
+            paths.add("/candidates?region=" + encode(region) + "&n=10");
+        }
+        for (String party : importer.getPartyMap().keySet()) {
+            paths.add("/party?name=" + encode(party));
+        }
+        return paths.stream().map(path -> URI.create(baseUrl + path)).toList();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static void run(HttpClient client, List<URI> uris, int concurrency, int requests)
+            throws InterruptedException {
+        run(client, uris, concurrency, new long[requests]);
+    }
+
+    /**
+     * Sends as many requests as latencies fit, from the given number of concurrent clients.
+     * @return Number of requests that failed or answered an unexpected status
+     */
+    private static int run(HttpClient client, List<URI> uris, int concurrency, long[] latencies)
+            throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[concurrency];
+        for (int t = 0; t < concurrency; t++) {
+            threads[t] = Thread.ofVirtual().start(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < latencies.length) {
+                    HttpRequest request = HttpRequest.newBuilder(uris.get(i % uris.size())).GET().build();
+                    long startTime = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+                        if (status != 200 && status != 300 && status != 404) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[i] = System.nanoTime() - startTime;
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return errors.get();
+    }
+
+    /**
+     * @return The latency below which the given percentage of the sorted latencies lies, in milliseconds
+     */
+    private static double percentile(long[] sortedLatencies, double percentage) {
+        int index = (int) Math.ceil(percentage / 100 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,66 @@
+package nl.hva.oop.utils;
+
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first import after the start of the app, on a generated file with the size of TK2023: parsing the CSV file
+ * with importCSVMapped against loading the snapshot with importCSVCached. Every fork measures one import in a fresh
+ * JVM (single-shot, no warmup), which is what a user starting the app sees. Scores are milliseconds per import.
+ * <p>
+ * sourceChecksum measures the part of loading a snapshot that reads the whole CSV file: the CRC32C that proves
+ * the snapshot still belongs to the file. It's a separate pass over the file, but one without parsing,
+ * so it costs a small part of the load; the snapshot itself is decoded in a single pass.
+ * <p>
+ * Loading the snapshot is about four times faster than importCSVMapped (about 550 against 2,300 ms), not an order
+ * of magnitude: every party of every region is still decoded and frozen when the import finishes.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    private Path csvFile;
+    private String csvFilePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csvFile = Files.createTempFile("startup", ".csv");
+        csvFilePath = csvFile.toString();
+        new ElectionDataGenerator("TK2023", ElectionDataGenerator.TK2023_MUNICIPALITIES, 26, 40, 2023).write(csvFile);
+        // Writes the snapshot that importCSVCached loads
+        new CSVImporter().importCSVCached(csvFilePath);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(csvFilePath + ".snapshot"));
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public CSVImporter importCSVMapped() {
+        CSVImporter importer = new CSVImporter();
+        importer.importCSVMapped(csvFilePath);
+        return importer;
+    }
+
+    @Benchmark
+    public CSVImporter importCSVCached() {
+        CSVImporter importer = new CSVImporter();
+        importer.importCSVCached(csvFilePath);
+        return importer;
+    }
+
+    @Benchmark
+    public long sourceChecksum() throws IOException {
+        return ImportSnapshot.checksum(csvFile);
+    }
+}
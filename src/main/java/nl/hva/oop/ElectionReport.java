@@ -0,0 +1,320 @@
+package nl.hva.oop;
+
+import nl.hva.oop.models.Candidate;
+import nl.hva.oop.models.Party;
+import nl.hva.oop.utils.CSVImporter;
+import nl.hva.oop.utils.ElectionSnapshot;
+import nl.hva.oop.utils.Rankings;
+import nl.hva.oop.utils.RegionRegistry;
+import nl.hva.oop.utils.RegionSearchIndex;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import static nl.hva.oop.utils.ConsoleColors.*;
+
+/**
+ * The texts of the console app: the country stats, the national parties and the parties and candidates of a region.
+ * {@link Main} prints them and {@link Server} returns them over HTTP, so both give the same answers.
+ * Every answer reads one {@link ElectionSnapshot} of the importer, also for its rankings, so it's safe to use from
+ * multiple threads, also while the importer imports again.
+ * {@link #writeReport(Path)} writes all of it, for every region, to a file.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class ElectionReport {
+    // Maximum number of regions suggested for a search that matches several regions
+    private static final int SUGGESTIONS = 5;
+
+    // Bytes writeReport collects before it writes them, so the stream gets a few large writes
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final CSVImporter importer;
+    private final Rankings rankings;
+    private final boolean colors;
+    private volatile Snapshot snapshot;
+
+    /**
+     * A snapshot of the importer and the index of its regions.
+     */
+    private record Snapshot(ElectionSnapshot election, RegionSearchIndex regionIndex) {
+    }
+
+    /**
+     * Outcome of a search.
+     */
+    public enum Status {
+        /** The text has the answer. */
+        FOUND,
+        /** The query matched several regions, the text suggests their names. */
+        SUGGESTIONS,
+        /** Nothing matched the query, the text says so. */
+        NOT_FOUND
+    }
+
+    /**
+     * An answer to a search.
+     * @param status Outcome of the search
+     * @param text Text to show, ending with a newline
+     */
+    public record Answer(Status status, String text) {
+    }
+
+    /**
+     * @param importer Importer with the imported data
+     * @param colors True to color the texts for a console, false for plain text
+     */
+    public ElectionReport(CSVImporter importer, boolean colors) {
+        this.importer = importer;
+        this.rankings = new Rankings(importer);
+        this.colors = colors;
+    }
+
+    /**
+     * @return The last snapshot of the importer, with its regions indexed
+     */
+    private Snapshot snapshot() {
+        ElectionSnapshot election = importer.getSnapshot();
+        Snapshot current = snapshot;
+        if (current == null || current.election() != election) {
+            // Finds regions by name without case, accents, spaces or punctuation, by prefix and with typos
+            current = new Snapshot(election, new RegionSearchIndex(election));
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return The country stats, e.g. "Opkomst = 10432726"
+     */
+    public String countryStats() {
+        StringBuilder sb = new StringBuilder();
+        appendCountryStats(ReportWriter.of(sb), importer.getSnapshot());
+        return sb.toString();
+    }
+
+    private void appendCountryStats(ReportWriter out, ElectionSnapshot election) {
+        line(out, BLUE_BOLD, "=== Tweede Kamer verkiezingen - landelijke statistieken ===");
+        // The keys are the labels of the veldTypes, formatted once when the FieldType was created
+        for (Map.Entry<String, Long> entry : election.getCountryStats().entrySet()) {
+            out.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+        }
+    }
+
+    /**
+     * @return The parties by seats (descending), then name, each with its chosen candidates
+     */
+    public String parties() {
+        StringBuilder sb = new StringBuilder();
+        appendParties(ReportWriter.of(sb), importer.getSnapshot());
+        return sb.toString();
+    }
+
+    private void appendParties(ReportWriter out, ElectionSnapshot election) {
+        line(out, BLUE_BOLD, "\n=== Landelijke statistieken partijen ===");
+        Map<String, Party> partyMap = election.getPartyMap();
+        if (partyMap.isEmpty()) {
+            out.append("No global parties found (using region-based approach?).\n");
+            return;
+        }
+        for (Party p : rankings.topPartiesBySeats(election, null, partyMap.size())) {
+            out.append(color(YELLOW_BOLD)).append("- ").append(p.getName()).append(" => aantal zetels: ")
+                    .append(p.getSeats()).append(color(RESET)).append('\n');
+            for (Candidate c : p.getCandidates()) {
+                if (c.isChosen()) {
+                    out.append("    #").append(c.getCandidateNumber())
+                            .append(' ').append(c.getFullName())
+                            .append(" - [aantal stemmen = ").append(c.getTotalVotes()).append("]\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds a region by name (exact, by prefix or with a typo) and describes its parties and candidates.
+     * @param query Name of a municipality, province or "Nederland"
+     * @return The parties of the region by seats, each with all its candidates; or suggestions or an error
+     */
+    public Answer region(String query) {
+        Snapshot snapshot = snapshot();
+        Answer found = findRegion(snapshot, query);
+        if (found.status() != Status.FOUND) {
+            return found;
+        }
+        String regionName = found.text();
+        Map<String, Party> partiesInRegion =
+                snapshot.election().getRegionPartyMap().getOrDefault(regionName, Map.of());
+        if (partiesInRegion.isEmpty()) {
+            return notFound("Geen partijen gevonden voor: ", query);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendRegion(ReportWriter.of(sb), snapshot.election(), regionName, partiesInRegion);
+        return new Answer(Status.FOUND, sb.toString());
+    }
+
+    private void appendRegion(ReportWriter out, ElectionSnapshot election, String regionName,
+                              Map<String, Party> partiesInRegion) {
+        line(out, BLUE_BOLD, "\n\n==============================================================");
+        searchedFor(out, regionName);
+        // Parties by seats desc, then name asc; cached after the first search of the region
+        for (Party party : rankings.topPartiesBySeats(election, regionName, partiesInRegion.size())) {
+            appendParty(out, regionName, party);
+        }
+    }
+
+    /**
+     * Writes the whole report to a file: the country stats, the national parties and then the parties and
+     * candidates of every region, as {@link #region(String)} describes them. Create the report without colors
+     * for a file.
+     * @param file File to write, replaced if it exists
+     * @throws IOException If the file can't be written
+     */
+    public void writeReport(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeReport(out);
+        }
+    }
+
+    /**
+     * Writes the whole report in UTF-8, like {@link #writeReport(Path)}, from one snapshot of the importer.
+     * The regions are taken from the snapshot in order (country, provinces, municipalities) instead of searched,
+     * and rendered straight into UTF-8 by a {@link ReportWriter}, which encodes every name once and writes
+     * in large blocks, so the stream needs no buffering of its own.
+     * @param stream Stream to write to; not closed
+     * @throws IOException If the stream fails
+     */
+    public void writeReport(OutputStream stream) throws IOException {
+        ElectionSnapshot election = importer.getSnapshot();
+        ReportWriter.Bytes out = ReportWriter.of(stream, BUFFER_SIZE);
+        try {
+            appendReport(out, election);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    private void appendReport(ReportWriter out, ElectionSnapshot election) {
+        appendCountryStats(out, election);
+        appendParties(out, election);
+
+        // Regions with the same name (e.g. the province and the municipality Utrecht) share their data
+        RegionRegistry regions = election.getRegions();
+        List<String> names = new ArrayList<>(regions.size());
+        regions.getCountries().forEach(country -> names.add(country.getName()));
+        regions.getProvinces().forEach(province -> names.add(province.getName()));
+        regions.getMunicipalities().forEach(municipality -> names.add(municipality.getName()));
+        Set<String> written = new HashSet<>();
+        for (String regionName : names) {
+            Map<String, Party> partiesInRegion = election.getRegionPartyMap().get(regionName);
+            if (partiesInRegion != null && !partiesInRegion.isEmpty() && written.add(regionName)) {
+                appendRegion(out, election, regionName, partiesInRegion);
+            }
+        }
+    }
+
+    /**
+     * Describes one party and all its candidates in a region.
+     * @param query Name of a municipality, province or "Nederland"
+     * @param partyName Name of the party, as in the CSV file
+     * @return The party with its candidates and their votes in the region; or suggestions or an error
+     */
+    public Answer party(String query, String partyName) {
+        Snapshot snapshot = snapshot();
+        Answer found = findRegion(snapshot, query);
+        if (found.status() != Status.FOUND) {
+            return found;
+        }
+        String regionName = found.text();
+        Party party = snapshot.election().getRegionPartyMap().getOrDefault(regionName, Map.of()).get(partyName);
+        if (party == null) {
+            return notFound("Geen partij gevonden voor: ", partyName);
+        }
+        StringBuilder sb = new StringBuilder();
+        ReportWriter out = ReportWriter.of(sb);
+        searchedFor(out, regionName);
+        appendParty(out, regionName, party);
+        return new Answer(Status.FOUND, sb.toString());
+    }
+
+    /**
+     * Lists the candidates with the most votes in a region, over all parties.
+     * @param query Name of a municipality, province or "Nederland"
+     * @param n Maximum number of candidates
+     * @return The candidates by votes (descending); or suggestions or an error
+     */
+    public Answer topCandidates(String query, int n) {
+        Snapshot snapshot = snapshot();
+        Answer found = findRegion(snapshot, query);
+        if (found.status() != Status.FOUND) {
+            return found;
+        }
+        String regionName = found.text();
+        StringBuilder sb = new StringBuilder();
+        ReportWriter out = ReportWriter.of(sb);
+        searchedFor(out, regionName);
+        for (Candidate c : rankings.topCandidates(snapshot.election(), regionName, n)) {
+            out.append("   #").append(c.getCandidateNumber())
+                    .append(' ').append(c.getFullName())
+                    .append(" (").append(c.getParty().getName()).append(')')
+                    .append(" - [aantal stemmen=").append(c.getTotalVotes()).append("]\n");
+        }
+        return new Answer(Status.FOUND, sb.toString());
+    }
+
+    private void appendParty(ReportWriter out, String regionName, Party party) {
+        out.append(color(YELLOW_BOLD)).append("Partij: ").append(party.getName());
+        if (regionName.equals("Nederland")) {
+            out.append(" - aantal zetels = ").append(party.getSeats());
+        }
+        out.append(color(RESET)).append('\n');
+
+        // Candidates are already ordered by candidate number
+        for (Candidate c : party.getCandidates()) {
+            out.append("   #").append(c.getCandidateNumber())
+                    .append(' ').append(c.getFullName())
+                    .append(" - [aantal stemmen=").append(c.getTotalVotes()).append("]\n");
+        }
+    }
+
+    /**
+     * @return FOUND with the name of the region as text, or the suggestions or error to show instead
+     */
+    private Answer findRegion(Snapshot snapshot, String query) {
+        List<RegionSearchIndex.Region> matches = snapshot.regionIndex().search(query, SUGGESTIONS);
+        if (matches.isEmpty()) {
+            return notFound("Geen data gevonden voor: ", query);
+        }
+
+        // Regions with the same name (e.g. the province and the municipality Utrecht) share their data
+        Set<String> names = new LinkedHashSet<>();
+        for (RegionSearchIndex.Region match : matches) {
+            names.add(match.name());
+        }
+        if (names.size() > 1) {
+            return new Answer(Status.SUGGESTIONS, color(YELLOW_BOLD) + "Bedoelde je: " + color(RESET)
+                    + String.join(", ", names) + "?\n");
+        }
+        return new Answer(Status.FOUND, matches.get(0).name());
+    }
+
+    private Answer notFound(String message, String query) {
+        return new Answer(Status.NOT_FOUND, color(RED_BOLD) + message + color(RESET) + query + "\n");
+    }
+
+    private void line(ReportWriter out, String color, String text) {
+        out.append(color(color)).append(text).append(color(RESET)).append('\n');
+    }
+
+    private void searchedFor(ReportWriter out, String regionName) {
+        out.append(color(BLUE_BOLD)).append("====== Gezocht op: ").append(regionName).append(" ======")
+                .append(color(RESET)).append('\n');
+    }
+
+    private String color(String color) {
+        return colors ? color : "";
+    }
+}
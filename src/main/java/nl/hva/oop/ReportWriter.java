@@ -0,0 +1,168 @@
+package nl.hva.oop;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Where {@link ElectionReport} renders its texts: into a StringBuilder for one answer, or straight into the UTF-8
+ * bytes of a stream for a report of all regions. The stream version collects the bytes in one large buffer and
+ * writes it when it's full, so the stream gets a few large writes, and encodes every text only once:
+ * the names of the regions, parties and candidates, the labels and the fixed texts are appended again and again,
+ * so their bytes are cached. Numbers are written as digits without creating a String.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+abstract class ReportWriter {
+    /**
+     * Appends a text, e.g. a name or a fixed part of a line.
+     */
+    abstract ReportWriter append(String text);
+
+    abstract ReportWriter append(long number);
+
+    /**
+     * Appends a character of the ASCII range, e.g. a newline.
+     */
+    abstract ReportWriter append(char c);
+
+    /**
+     * @param sb StringBuilder to append to
+     * @return A writer that appends to the StringBuilder
+     */
+    static ReportWriter of(StringBuilder sb) {
+        return new Chars(sb);
+    }
+
+    /**
+     * @param out Stream to write the UTF-8 bytes to
+     * @param bufferSize Number of bytes to collect before they're written
+     * @return A writer that writes to the stream; call {@link Bytes#flush()} at the end
+     */
+    static Bytes of(OutputStream out, int bufferSize) {
+        return new Bytes(out, bufferSize);
+    }
+
+    private static final class Chars extends ReportWriter {
+        private final StringBuilder sb;
+
+        private Chars(StringBuilder sb) {
+            this.sb = sb;
+        }
+
+        @Override
+        ReportWriter append(String text) {
+            sb.append(text);
+            return this;
+        }
+
+        @Override
+        ReportWriter append(long number) {
+            sb.append(number);
+            return this;
+        }
+
+        @Override
+        ReportWriter append(char c) {
+            sb.append(c);
+            return this;
+        }
+    }
+
+    /**
+     * Writes to a stream. The append methods throw an UncheckedIOException if the stream fails.
+     */
+    static final class Bytes extends ReportWriter {
+        private final OutputStream out;
+        private final byte[] buffer;
+        private int position;
+        // UTF-8 bytes per text; the texts of a report are a limited set of names, labels and fixed texts
+        private final Map<String, byte[]> encoded = new HashMap<>();
+        // Digits of a number, written from the end
+        private final byte[] digits = new byte[20];
+
+        private Bytes(OutputStream out, int bufferSize) {
+            this.out = out;
+            this.buffer = new byte[bufferSize];
+        }
+
+        @Override
+        ReportWriter append(String text) {
+            byte[] bytes = encoded.get(text);
+            if (bytes == null) {
+                bytes = text.getBytes(StandardCharsets.UTF_8);
+                encoded.put(text, bytes);
+            }
+            if (bytes.length > buffer.length - position) {
+                writeBuffer();
+                if (bytes.length > buffer.length) {
+                    write(bytes, bytes.length);
+                    return this;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+            return this;
+        }
+
+        @Override
+        ReportWriter append(long number) {
+            if (number == Long.MIN_VALUE) {
+                return append(Long.toString(number));
+            }
+            if (digits.length + 1 > buffer.length - position) {
+                writeBuffer();
+            }
+            if (number < 0) {
+                buffer[position++] = '-';
+                number = -number;
+            }
+            int start = digits.length;
+            do {
+                digits[--start] = (byte) ('0' + number % 10);
+                number /= 10;
+            } while (number != 0);
+            System.arraycopy(digits, start, buffer, position, digits.length - start);
+            position += digits.length - start;
+            return this;
+        }
+
+        @Override
+        ReportWriter append(char c) {
+            if (c >= 0x80) {
+                return append(String.valueOf(c));
+            }
+            if (position == buffer.length) {
+                writeBuffer();
+            }
+            buffer[position++] = (byte) c;
+            return this;
+        }
+
+        /**
+         * Writes the collected bytes and flushes the stream.
+         * @throws IOException If the stream fails
+         */
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
+        }
+
+        private void writeBuffer() {
+            write(buffer, position);
+            position = 0;
+        }
+
+        private void write(byte[] bytes, int length) {
+            try {
+                out.write(bytes, 0, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
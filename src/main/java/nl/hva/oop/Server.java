@@ -0,0 +1,178 @@
+package nl.hva.oop;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import nl.hva.oop.utils.CSVImporter;
+import nl.hva.oop.utils.ImportStatistics;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Local HTTP server that imports the CSV file once and then answers the queries of the console app,
+ * with the same texts as {@link Main} prints (without colors). Every request runs on a virtual thread of its own,
+ * so many clients can query at the same time. Only listens on the loopback address.
+ * <p>
+ * Endpoints (all GET, answering text/plain):
+ * <ul>
+ *     <li>{@code /stats}: the country stats</li>
+ *     <li>{@code /parties}: the parties by seats, with their chosen candidates</li>
+ *     <li>{@code /region?name=Amsterdam}: the parties and candidates of a region</li>
+ *     <li>{@code /party?region=Amsterdam&name=VVD}: one party and its candidates, in "Nederland" without region</li>
+ *     <li>{@code /candidates?region=Amsterdam&n=10}: the candidates with the most votes, in "Nederland" without region</li>
+ * </ul>
+ * A search that matches several regions answers 300 with suggestions, a search that matches nothing 404.
+ * A query string that can't be decoded answers 400, a query that fails 500.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class Server implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8080;
+    private static final String DEFAULT_REGION = "Nederland";
+    private static final int DEFAULT_CANDIDATES = 10;
+    // Connections waiting to be accepted, so a burst of clients isn't refused
+    private static final int BACKLOG = 4096;
+
+    static {
+        // The JDK server writes the headers and the body of a response separately; without TCP_NODELAY the body
+        // waits for the acknowledgement of the headers, which the client delays by up to 40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        // Keeps the connections of many clients open between requests instead of only 200 by default
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(BACKLOG));
+        }
+    }
+
+    private final ElectionReport report;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+
+    /**
+     * Starts the server.
+     * @param importer Importer with the imported data; may import again while the server runs
+     * @param port Port to listen on, or 0 for any free port
+     * @throws IOException If the port can't be opened
+     */
+    public Server(CSVImporter importer, int port) throws IOException {
+        this.report = new ElectionReport(importer, false);
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        httpServer.setExecutor(executor);
+
+        context("/stats", _ -> new ElectionReport.Answer(ElectionReport.Status.FOUND, report.countryStats()));
+        context("/parties", _ -> new ElectionReport.Answer(ElectionReport.Status.FOUND, report.parties()));
+        context("/region", parameters -> report.region(parameters.getOrDefault("name", "")));
+        context("/party", parameters -> report.party(parameters.getOrDefault("region", DEFAULT_REGION),
+                parameters.getOrDefault("name", "")));
+        context("/candidates", parameters -> report.topCandidates(parameters.getOrDefault("region", DEFAULT_REGION),
+                parseInt(parameters.get("n"), DEFAULT_CANDIDATES)));
+        httpServer.start();
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, without waiting for running requests.
+     */
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.close();
+    }
+
+    private void context(String path, Function<Map<String, String>, ElectionReport.Answer> query) {
+        httpServer.createContext(path, exchange -> {
+            try (exchange) {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    send(exchange, 405, "Alleen GET wordt ondersteund\n");
+                    return;
+                }
+                Map<String, String> parameters;
+                try {
+                    parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                } catch (IllegalArgumentException e) {
+                    // E.g. a malformed % escape
+                    send(exchange, 400, "Ongeldige query: " + e.getMessage() + "\n");
+                    return;
+                }
+                ElectionReport.Answer answer;
+                try {
+                    answer = query.apply(parameters);
+                } catch (RuntimeException e) {
+                    System.err.println("Query " + exchange.getRequestURI() + " failed: " + e);
+                    e.printStackTrace();
+                    send(exchange, 500, "Interne fout\n");
+                    return;
+                }
+                int status = switch (answer.status()) {
+                    case FOUND -> 200;
+                    case SUGGESTIONS -> 300;
+                    case NOT_FOUND -> 404;
+                };
+                send(exchange, status, answer.text());
+            }
+        });
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals >= 0 ? parameter.substring(0, equals) : parameter;
+            String value = equals >= 0 ? parameter.substring(equals + 1) : "";
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Imports the CSV file and serves it until the process is stopped.
+     * @param args The CSV file (default TK2023_uitslag.csv) and the port (default 8080)
+     */
+    public static void main(String[] args) throws IOException {
+        String csvFilePath = args.length > 0 ? args[0] : "TK2023_uitslag.csv";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+
+        CSVImporter importer = new CSVImporter();
+        ImportStatistics statistics = importer.importCSVCached(csvFilePath);
+        System.out.println(statistics);
+
+        Server server = new Server(importer, port);
+        System.out.println("Listening on http://localhost:" + server.getPort() + "/");
+    }
+}
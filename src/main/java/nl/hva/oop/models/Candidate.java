@@ -1,45 +1,68 @@
 package nl.hva.oop.models;
 
+import nl.hva.oop.utils.StringDictionary;
+import java.util.Objects;
+
 /**
- * Represents a candidate for a political party.
+ * Represents a candidate for a political party, in the region of that party.
+ * A view: the name and the other data are the {@link CandidateIdentity} shared by all regions,
+ * the votes and whether the candidate was chosen are stored in the party. Views are created when they're asked for,
+ * so compare them with equals.
+ * <p>
+ * A candidate created with a public constructor isn't in its party yet: it keeps its own votes and chosen flag
+ * until it's added with {@link Party#addCandidate(Candidate)}.
  * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
  */
 public class Candidate {
     private final Party party;
-    private final int candidateNumber;
-    private final String initials;
-    private final String firstName;
-    private final String prefix;
-    private final String lastName;
-    private final String residence;
-    private final String sex;
+    private final CandidateIdentity identity;
+    // Until the candidate is added to its party
     private boolean chosen;
     private int totalVotes;
 
+    Candidate(Party party, CandidateIdentity identity) {
+        this.party = party;
+        this.identity = identity;
+    }
+
+    /**
+     * Creates a candidate with a new {@link CandidateIdentity}; add it with {@link Party#addCandidate(Candidate)}.
+     * To add the same candidate to the party of every region, use {@link Party#addCandidate(CandidateIdentity)}
+     * with one identity instead.
+     */
     public Candidate(Party party, int candidateNumber, String initials, String firstName, String prefix,
                      String lastName, String residence, String sex) {
-        this.party = party;
-        this.candidateNumber = candidateNumber;
-        this.initials = initials;
-        this.firstName = firstName;
-        this.prefix = prefix;
-        this.lastName = lastName;
-        this.residence = residence;
-        this.sex = sex;
-        this.chosen = false;
-        this.totalVotes = 0;
+        this(party, new CandidateIdentity(candidateNumber, initials, firstName, prefix, lastName, residence, sex));
+    }
+
+    /**
+     * Creates a candidate whose identity has the canonical text fields from the dictionary of the import.
+     */
+    public Candidate(Party party, int candidateNumber, String initials, String firstName, String prefix,
+                     String lastName, String residence, String sex, StringDictionary dictionary) {
+        this(party, new CandidateIdentity(candidateNumber, initials, firstName, prefix, lastName, residence, sex,
+                dictionary));
     }
 
     /**
      * For example, "D. (Dilan) Yeşilgöz", with prefix if present.
      */
     public String getFullName() {
-        String full = initials + " (" + firstName + ")";
-        if (prefix != null && !prefix.isEmpty()) {
-            full += " " + prefix;
-        }
-        full += " " + lastName;
-        return full.trim();
+        return identity.getFullName();
+    }
+
+    /**
+     * @return True for a view of the same candidate in the same party object
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Candidate other && party == other.party
+                && identity.getCandidateNumber() == other.identity.getCandidateNumber();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(party), identity.getCandidateNumber());
     }
 
     // Getters and setters
@@ -47,47 +70,66 @@ public class Candidate {
         return party;
     }
 
+    public CandidateIdentity getIdentity() {
+        return identity;
+    }
+
     public int getCandidateNumber() {
-        return candidateNumber;
+        return identity.getCandidateNumber();
     }
 
     public String getInitials() {
-        return initials;
+        return identity.getInitials();
     }
 
     public String getFirstName() {
-        return firstName;
+        return identity.getFirstName();
     }
 
     public String getPrefix() {
-        return prefix;
+        return identity.getPrefix();
     }
 
     public String getLastName() {
-        return lastName;
+        return identity.getLastName();
     }
 
     public String getResidence() {
-        return residence;
+        return identity.getResidence();
     }
 
     public String getSex() {
-        return sex;
+        return identity.getSex();
     }
 
     public boolean isChosen() {
-        return chosen;
+        return isInParty() ? party.isChosen(identity.getCandidateNumber()) : chosen;
     }
 
     public void setChosen(boolean chosen) {
-        this.chosen = chosen;
+        if (isInParty()) {
+            party.setChosen(identity.getCandidateNumber(), chosen);
+        } else {
+            this.chosen = chosen;
+        }
     }
 
     public int getTotalVotes() {
-        return totalVotes;
+        return isInParty() ? party.getTotalVotes(identity.getCandidateNumber()) : totalVotes;
     }
 
     public void setTotalVotes(int totalVotes) {
-        this.totalVotes = totalVotes;
+        if (isInParty()) {
+            party.setTotalVotes(identity.getCandidateNumber(), totalVotes);
+        } else {
+            this.totalVotes = totalVotes;
+        }
+    }
+
+    /**
+     * @return False for a candidate of a public constructor that wasn't added to its party (yet)
+     */
+    private boolean isInParty() {
+        return party.getIdentity(identity.getCandidateNumber()) == identity;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package nl.hva.oop.models;
+
+import nl.hva.oop.utils.StringDictionary;
+import java.util.Objects;
+
+/**
+ * Who a candidate is: the number on the list, the name, the residence and the sex.
+ * Immutable and stored once per party per election; the parties of all regions share it
+ * and only store the votes of the candidate in their region (see {@link Party}).
+ * The full name is built on the first call of {@link #getFullName()} and kept, because reports ask for it
+ * once per region.
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class CandidateIdentity {
+    private final int candidateNumber;
+    private final String initials;
+    private final String firstName;
+    private final String prefix;
+    private final String lastName;
+    private final String residence;
+    private final String sex;
+    // Built when it's first asked for; threads that race just build the same name twice
+    private String fullName;
+
+    public CandidateIdentity(int candidateNumber, String initials, String firstName, String prefix, String lastName,
+                             String residence, String sex) {
+        this.candidateNumber = candidateNumber;
+        this.initials = initials;
+        this.firstName = firstName;
+        this.prefix = prefix;
+        this.lastName = lastName;
+        this.residence = residence;
+        this.sex = sex;
+    }
+
+    /**
+     * Creates an identity whose text fields are the canonical instances from the dictionary of the import.
+     */
+    public CandidateIdentity(int candidateNumber, String initials, String firstName, String prefix, String lastName,
+                             String residence, String sex, StringDictionary dictionary) {
+        this(candidateNumber, dictionary.intern(initials), dictionary.intern(firstName), dictionary.intern(prefix),
+                dictionary.intern(lastName), dictionary.intern(residence), dictionary.intern(sex));
+    }
+
+    /**
+     * For example, "D. (Dilan) Yeşilgöz", with prefix if present.
+     */
+    public String getFullName() {
+        String full = fullName;
+        if (full == null) {
+            full = initials + " (" + firstName + ")";
+            if (prefix != null && !prefix.isEmpty()) {
+                full += " " + prefix;
+            }
+            full += " " + lastName;
+            full = full.trim();
+            fullName = full;
+        }
+        return full;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CandidateIdentity other
+                && candidateNumber == other.candidateNumber
+                && Objects.equals(initials, other.initials)
+                && Objects.equals(firstName, other.firstName)
+                && Objects.equals(prefix, other.prefix)
+                && Objects.equals(lastName, other.lastName)
+                && Objects.equals(residence, other.residence)
+                && Objects.equals(sex, other.sex);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(candidateNumber, initials, firstName, prefix, lastName, residence, sex);
+    }
+
+    // Getters
+    public int getCandidateNumber() {
+        return candidateNumber;
+    }
+
+    public String getInitials() {
+        return initials;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getResidence() {
+        return residence;
+    }
+
+    public String getSex() {
+        return sex;
+    }
+}
@@ -1,5 +1,7 @@
 package nl.hva.oop.models;
 
+import nl.hva.oop.utils.StringDictionary;
+
 /**
  * Represents a country with a name and a code.
  * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
@@ -13,6 +15,13 @@ public class Country {
         this.code = code;
     }
 
+    /**
+     * Creates a country whose name and code are the canonical instances from the dictionary of the import.
+     */
+    public Country(String name, String code, StringDictionary dictionary) {
+        this(dictionary.intern(name), dictionary.intern(code));
+    }
+
     @Override
     public String toString() {
         return "Country { " +
@@ -1,5 +1,7 @@
 package nl.hva.oop.models;
 
+import nl.hva.oop.utils.StringDictionary;
+
 /**
  * Represents a municipality with a name, a code and a province.
  * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
@@ -15,6 +17,13 @@ public class Municipality {
         this.province = province;
     }
 
+    /**
+     * Creates a municipality whose name and code are the canonical instances from the dictionary of the import.
+     */
+    public Municipality(String name, String code, Province province, StringDictionary dictionary) {
+        this(dictionary.intern(name), dictionary.intern(code), province);
+    }
+
     @Override
     public String toString() {
         return "Municipality { " +
@@ -1,24 +1,50 @@
 package nl.hva.oop.models;
 
+import nl.hva.oop.utils.StringDictionary;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents a political party (e.g. "VVD", "D66", etc.),
  * stored per region, NOT globally.
+ * Candidates are indexed by their candidate number, so looking one up doesn't depend on the length of the list.
+ * The party only stores the votes and the chosen flag of its candidates in the region, in arrays indexed by
+ * candidate number; who the candidates are is a {@link CandidateIdentity} shared with the same party in other regions.
+ * Once {@link #freeze() frozen}, a party and its candidates can't be changed anymore and can be read from any thread.
+ * An {@link nl.hva.oop.utils.ElectionSnapshot} holds {@link #frozenCopy() frozen copies}, so the party itself stays
+ * changeable.
  * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
  */
 public class Party {
     private final int listNumber; // e.g. "1" for VVD
     private final String name;    // e.g. "VVD"
     private int seats;
-    private final List<Candidate> candidates;
+
+    // Dense arrays indexed by candidate number, candidate lists are numbered 1..n
+    private CandidateIdentity[] identities;
+    private int[] votes;
+    private boolean[] chosen;
+    private int candidateCount;
+    private boolean frozen;
+    // The copy returned by frozenCopy(), until the party changes
+    private Party frozenCopy;
 
     public Party(int listNumber, String name) {
         this.listNumber = listNumber;
         this.name = name;
         this.seats = 0;
-        this.candidates = new ArrayList<>();
+        this.identities = new CandidateIdentity[16];
+        this.votes = new int[16];
+        this.chosen = new boolean[16];
+    }
+
+    /**
+     * Creates a party whose name is the canonical instance from the dictionary of the import.
+     */
+    public Party(int listNumber, String name, StringDictionary dictionary) {
+        this(listNumber, dictionary.intern(name));
     }
 
     // Getters and setters
@@ -35,14 +61,193 @@ public class Party {
     }
 
     public void setSeats(int seats) {
+        checkNotFrozen();
         this.seats = seats;
     }
 
+    /**
+     * @return Unmodifiable list of new views of the candidates, ordered by candidate number
+     */
     public List<Candidate> getCandidates() {
-        return candidates;
+        List<Candidate> ordered = new ArrayList<>(candidateCount);
+        for (CandidateIdentity identity : identities) {
+            if (identity != null) {
+                ordered.add(new Candidate(this, identity));
+            }
+        }
+        return Collections.unmodifiableList(ordered);
+    }
+
+    /**
+     * @param candidateNumber Candidate number on the list
+     * @return A view of the candidate with that number, or null if there is none
+     */
+    public Candidate getCandidate(int candidateNumber) {
+        CandidateIdentity identity = getIdentity(candidateNumber);
+        return identity != null ? new Candidate(this, identity) : null;
+    }
+
+    /**
+     * @param candidateNumber Candidate number on the list
+     * @return Who the candidate with that number is, or null if there is none
+     */
+    public CandidateIdentity getIdentity(int candidateNumber) {
+        if (candidateNumber < 0 || candidateNumber >= identities.length) {
+            return null;
+        }
+        return identities[candidateNumber];
+    }
+
+    /**
+     * @param candidateNumber Candidate number on the list
+     * @return True if the party has a candidate with that number
+     */
+    public boolean hasCandidate(int candidateNumber) {
+        return getIdentity(candidateNumber) != null;
+    }
+
+    /**
+     * Adds a candidate without votes, replacing any candidate with the same candidate number.
+     * @param identity Who the candidate is, e.g. shared with the same party in another region
+     * @return A view of the added candidate
+     */
+    public Candidate addCandidate(CandidateIdentity identity) {
+        checkNotFrozen();
+        int number = identity.getCandidateNumber();
+        if (number < 0) {
+            throw new IllegalArgumentException("Candidate number can't be negative: " + number);
+        }
+        if (number >= identities.length) {
+            int length = Math.max(number + 1, identities.length * 2);
+            identities = Arrays.copyOf(identities, length);
+            votes = Arrays.copyOf(votes, length);
+            chosen = Arrays.copyOf(chosen, length);
+        }
+        if (identities[number] == null) {
+            candidateCount++;
+        }
+        identities[number] = identity;
+        votes[number] = 0;
+        chosen[number] = false;
+        return new Candidate(this, identity);
     }
 
+    /**
+     * Adds a candidate with its votes and chosen flag, replacing any candidate with the same candidate number.
+     * The party stores the identity of the candidate; from now on a candidate of this party reads its votes here.
+     * @param c Candidate to add, e.g. created with a public constructor of {@link Candidate}
+     */
     public void addCandidate(Candidate c) {
-        candidates.add(c);
+        int totalVotes = c.getTotalVotes();
+        boolean isChosen = c.isChosen();
+        int number = c.getCandidateNumber();
+        addCandidate(c.getIdentity());
+        votes[number] = totalVotes;
+        chosen[number] = isChosen;
+    }
+
+    /**
+     * @param candidateNumber Number of a candidate of the party
+     * @return True if the candidate was chosen
+     */
+    public boolean isChosen(int candidateNumber) {
+        return chosen[checkCandidate(candidateNumber)];
+    }
+
+    public void setChosen(int candidateNumber, boolean chosen) {
+        checkNotFrozen();
+        this.chosen[checkCandidate(candidateNumber)] = chosen;
+    }
+
+    /**
+     * @param candidateNumber Number of a candidate of the party
+     * @return The votes of the candidate in the region of the party
+     */
+    public int getTotalVotes(int candidateNumber) {
+        return votes[checkCandidate(candidateNumber)];
+    }
+
+    public void setTotalVotes(int candidateNumber, int totalVotes) {
+        checkNotFrozen();
+        votes[checkCandidate(candidateNumber)] = totalVotes;
+    }
+
+    /**
+     * Makes the party and its candidates immutable: from now on their setters throw UnsupportedOperationException.
+     * Only the thread that changed the party may freeze it; publish it to other threads afterwards,
+     * e.g. through a volatile field.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        // Nothing is added anymore, so drop the room the arrays kept for more candidates
+        int length = identities.length;
+        while (length > 0 && identities[length - 1] == null) {
+            length--;
+        }
+        if (length < identities.length) {
+            identities = Arrays.copyOf(identities, length);
+            votes = Arrays.copyOf(votes, length);
+            chosen = Arrays.copyOf(chosen, length);
+        }
+        frozen = true;
+    }
+
+    /**
+     * @return True if the party can't be changed anymore
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns a frozen copy of the party, e.g. for a snapshot that other threads read while this party is changed.
+     * The copy is made once and returned again until the party changes, so a snapshot of an import that only
+     * changed a few parties only copies those.
+     * @return A frozen copy, or the party itself if it's frozen
+     */
+    public Party frozenCopy() {
+        if (frozen) {
+            return this;
+        }
+        Party copy = frozenCopy;
+        if (copy == null) {
+            copy = copy();
+            copy.freeze();
+            frozenCopy = copy;
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the party and the votes of its candidates that can be changed.
+     * The copy shares the identities of the candidates.
+     */
+    public Party copy() {
+        Party copy = new Party(listNumber, name);
+        copy.seats = seats;
+        copy.identities = identities.clone();
+        copy.votes = votes.clone();
+        copy.chosen = chosen.clone();
+        copy.candidateCount = candidateCount;
+        return copy;
+    }
+
+    private int checkCandidate(int candidateNumber) {
+        if (getIdentity(candidateNumber) == null) {
+            throw new IllegalArgumentException("Party " + name + " has no candidate " + candidateNumber);
+        }
+        return candidateNumber;
+    }
+
+    /**
+     * Called before every change: a frozen party can't be changed, and the frozen copy of a party is outdated.
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Party " + name + " is frozen");
+        }
+        frozenCopy = null;
     }
-}
\ No newline at end of file
+}
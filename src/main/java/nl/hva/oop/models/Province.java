@@ -1,5 +1,7 @@
 package nl.hva.oop.models;
 
+import nl.hva.oop.utils.StringDictionary;
+
 /**
  * Represents a province with a name, a code and a country.
  * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
@@ -15,6 +17,13 @@ public class Province {
         this.country = country;
     }
 
+    /**
+     * Creates a province whose name and code are the canonical instances from the dictionary of the import.
+     */
+    public Province(String name, String code, Country country, StringDictionary dictionary) {
+        this(dictionary.intern(name), dictionary.intern(code), country);
+    }
+
     @Override
     public String toString() {
         return "Province { " +
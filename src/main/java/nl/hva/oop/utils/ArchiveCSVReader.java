@@ -0,0 +1,201 @@
+package nl.hva.oop.utils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads a CSV file inside a .zip or .gz archive without extracting it to disk.
+ * A thread of its own inflates the archive into blocks of complete lines, which are handed to the parsing thread
+ * through a bounded queue, so inflating and parsing overlap while at most {@link #BLOCKS} blocks are in memory.
+ * The blocks are reused, and the lines are parsed on their bytes just like {@link MappedCSVReader} does.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class ArchiveCSVReader {
+    // Size of a block; a line longer than this can't be read
+    private static final int BLOCK_SIZE = 1 << 18;
+    // Number of blocks: one being inflated, one being parsed and the rest waiting in between
+    private static final int BLOCKS = 4;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * A block of complete lines, the end of the archive (data null) or anything the inflating thread threw.
+     */
+    private record Block(byte[] data, int length, Throwable error) {
+    }
+
+    private static final Block END = new Block(null, 0, null);
+
+    private final Path archive;
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(BLOCKS);
+    // Blocks are only allocated when needed, so a small file needs only one
+    private int allocatedBlocks;
+    private final BlockingQueue<Block> full = new ArrayBlockingQueue<>(BLOCKS + 1);
+    private volatile long inflateNanos;
+
+    private ArchiveCSVReader(Path archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * @return True if the path names a .zip or .gz file
+     */
+    static boolean isArchive(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".zip") || name.endsWith(".gz");
+    }
+
+    /**
+     * Reads every line of the CSV file in the archive, handing the header to the consumer and each data line
+     * it accepts to it as a {@link CSVRow}. Of a .zip file, the first entry whose name ends with ".csv" is read.
+     * The same row instance is reused for every line.
+     *
+     * @param archive Path to the .zip or .gz file
+     * @param consumer Receives every data row
+     * @return Time the inflating thread spent reading and inflating, in nanoseconds
+     * @throws IOException If the archive can't be read, has no CSV file or contains a line longer than a block
+     */
+    static long read(Path archive, CSVRowConsumer consumer) throws IOException {
+        return new ArchiveCSVReader(archive).read(consumer);
+    }
+
+    private long read(CSVRowConsumer consumer) throws IOException {
+        Thread inflater = Thread.ofPlatform().name("csv-inflater-" + archive.getFileName()).daemon()
+                .start(this::inflate);
+
+        ByteCSVRow row = new ByteCSVRow();
+        row.setSchema(consumer.schema());
+        boolean isHeader = true;
+        try {
+            while (true) {
+                Block block = full.take();
+                // Rethrown as is, so an unchecked exception or error of the inflater isn't reported as an I/O error
+                if (block.error() instanceof IOException e) {
+                    throw e;
+                }
+                if (block.error() instanceof RuntimeException e) {
+                    throw e;
+                }
+                if (block.error() instanceof Error e) {
+                    throw e;
+                }
+                if (block == END) {
+                    break;
+                }
+                isHeader = MappedCSVReader.readLines(ByteBuffer.wrap(block.data()), block.length(), isHeader,
+                        row, consumer);
+                free.put(block.data());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + archive, e);
+        } finally {
+            // Stops the inflating thread if parsing failed
+            inflater.interrupt();
+        }
+        return inflateNanos;
+    }
+
+    /**
+     * Runs on the inflating thread: fills free blocks with complete lines and queues them,
+     * carrying the incomplete last line of a block over to the next one.
+     */
+    private void inflate() {
+        long nanos = 0;
+        try (InputStream in = open(archive)) {
+            // The incomplete last line of the previous block
+            byte[] carry = new byte[256];
+            int carried = 0;
+            boolean eof = false;
+            while (!eof) {
+                byte[] block = nextFreeBlock();
+                System.arraycopy(carry, 0, block, 0, carried);
+                int length = carried;
+                long readStart = System.nanoTime();
+                while (length < block.length) {
+                    int read = in.read(block, length, block.length - length);
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    length += read;
+                }
+                nanos += System.nanoTime() - readStart;
+
+                int end = length;
+                if (!eof) {
+                    end = lastNewline(block, length) + 1;
+                    if (end == 0) {
+                        throw new IOException("Line longer than " + BLOCK_SIZE + " bytes in " + archive);
+                    }
+                }
+                carried = length - end;
+                if (carried > carry.length) {
+                    carry = new byte[Math.max(carried, carry.length * 2)];
+                }
+                System.arraycopy(block, end, carry, 0, carried);
+                full.put(new Block(block, end, null));
+            }
+            inflateNanos = nanos;
+            full.put(END);
+        } catch (InterruptedException e) {
+            // The parsing thread stopped
+        } catch (IOException | RuntimeException | Error e) {
+            // Always handed to the parsing thread, which would otherwise wait for the next block forever
+            full.offer(new Block(null, 0, e));
+        }
+    }
+
+    private byte[] nextFreeBlock() throws InterruptedException {
+        byte[] block = free.poll();
+        if (block != null) {
+            return block;
+        }
+        if (allocatedBlocks < BLOCKS) {
+            allocatedBlocks++;
+            return new byte[BLOCK_SIZE];
+        }
+        // Wait until the parsing thread is done with a block
+        return free.take();
+    }
+
+    private static int lastNewline(byte[] block, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (block[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static InputStream open(Path archive) throws IOException {
+        InputStream in = Files.newInputStream(archive);
+        try {
+            if (archive.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+                return new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+            }
+            ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                    return zip;
+                }
+            }
+            zip.close();
+            throw new IOException("No .csv file in " + archive);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+}
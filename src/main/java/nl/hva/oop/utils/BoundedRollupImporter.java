@@ -0,0 +1,614 @@
+package nl.hva.oop.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Imports a results file per polling station ("stembureau") within a fixed memory budget, into the
+ * {@link RegionRollups} of the regions above the polling stations: the party votes, candidate votes and
+ * statistics of every municipality, and of the kieskringen, provinces and the country above it.
+ * The polling stations are the leaves of the hierarchy (region codes "SB.." with their municipality as parent);
+ * the leaf prefix can be changed, e.g. to "G" to add up the municipalities of a file like TK2023_uitslag.csv.
+ * <p>
+ * The rows of the leaves aren't kept. Every row is added to the sum of its parent region in a hash table of
+ * primitive longs (a key of region, list and candidate, and a sum), so a polling station costs nothing once its rows
+ * are read. When the table reaches the budget, its sums are sorted by key and written to a temporary file (a run),
+ * and the table starts empty again. At the end of the file the runs are merged: every run is read in key order,
+ * the sums of equal keys are added up, and the merged totals of every region are added to the region and to the
+ * regions above it. Many runs are merged in several passes, so the read buffers fit in the budget too.
+ * The totals are the same as the rollups of an import that keeps every leaf in memory, for files that have
+ * one row per value.
+ * <p>
+ * The rows of the regions above the leaves are the totals the Kiesraad reports for them; they're few and kept as
+ * {@link RegionRollups#getReportedTotals(String) reported totals}, so {@link RegionRollups#checkConsistency()}
+ * compares them with the sums of the polling stations. The budget covers the table and the buffers of the runs;
+ * the dictionary of the texts of the file and the totals of the result are small and not counted.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class BoundedRollupImporter {
+    /**
+     * Region code prefix of the polling stations.
+     */
+    public static final String DEFAULT_LEAF_PREFIX = "SB";
+
+    /**
+     * Smallest memory budget, in bytes.
+     */
+    public static final long MIN_MEMORY_BUDGET = 64 * 1024;
+
+    // A key and its sum, in the table and in a run
+    private static final int ENTRY_BYTES = 16;
+    private static final long EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_BUFFER = 4 * 1024;
+    private static final int MAX_BUFFER = 64 * 1024;
+
+    /*
+     * A key is the index of the region in the high 32 bits and the item in the low 32 bits: the kind of value
+     * in the top 2 bits, then 14 bits for the list number (the ordinal of a statistic) and 16 for the candidate
+     * number. Sorted keys group the values per region, with the statistics, parties and candidates in that order.
+     */
+    private static final int KIND_STAT = 0;
+    private static final int KIND_PARTY = 1;
+    private static final int KIND_CANDIDATE = 2;
+    private static final int MAX_LIST_NUMBER = (1 << 14) - 1;
+    private static final int MAX_CANDIDATE_NUMBER = (1 << 16) - 1;
+    private static final FieldType[] FIELD_TYPES = FieldType.values();
+
+    private final long memoryBudget;
+    private final String leafPrefix;
+    private final Path tempDirectory;
+    private final StringDictionary dictionary = new StringDictionary();
+    private final int maxCapacity;
+
+    private RegionRollups rollups;
+
+    // The regions the leaves are added up in, by index in order of appearance
+    private final List<String> regionCodes = new ArrayList<>();
+    private final Map<String, Integer> regionIndexes = new HashMap<>();
+    // Parent code per region code, from the region's own rows and from the grandparent column of its children
+    private final Map<String, String> parentCodes = new HashMap<>();
+    // The rows of a polling station follow each other, so the region of the previous row is usually the same.
+    // Keyed on the resolved code: rows without a parent code can belong to different grandparents.
+    private String lastRegionCode;
+    private int lastRegion;
+
+    // Open addressing: keys[slot] is EMPTY or the key of sums[slot]
+    private long[] keys;
+    private long[] sums;
+    private int size;
+
+    private final List<Path> runs = new ArrayList<>();
+    private final List<Path> tempFiles = new ArrayList<>();
+    private int runCount;
+    private long spilledBytes;
+
+    // The region of the totals that are being added, and the codes they're added to
+    private int emittedRegion;
+    private List<String> emittedPath;
+
+    /**
+     * A merged sum, or a sum that is written to a run.
+     */
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(long key, long sum) throws IOException;
+    }
+
+    /**
+     * @param memoryBudget Bytes the aggregation may use, at least {@link #MIN_MEMORY_BUDGET}
+     */
+    public BoundedRollupImporter(long memoryBudget) {
+        this(memoryBudget, DEFAULT_LEAF_PREFIX, null);
+    }
+
+    /**
+     * @param memoryBudget Bytes the aggregation may use, at least {@link #MIN_MEMORY_BUDGET}
+     * @param leafPrefix Region code prefix of the leaves, e.g. "SB" for polling stations
+     * @param tempDirectory Directory for the runs, or null for the default temporary-file directory
+     */
+    public BoundedRollupImporter(long memoryBudget, String leafPrefix, Path tempDirectory) {
+        if (memoryBudget < MIN_MEMORY_BUDGET) {
+            throw new IllegalArgumentException("The memory budget must be at least " + MIN_MEMORY_BUDGET + " bytes");
+        }
+        if (leafPrefix == null || leafPrefix.isEmpty()) {
+            throw new IllegalArgumentException("The leaf prefix can't be empty");
+        }
+        this.memoryBudget = memoryBudget;
+        this.leafPrefix = leafPrefix;
+        this.tempDirectory = tempDirectory;
+        // While the table grows, the old table and the new one of twice its size are both in memory
+        this.maxCapacity = Integer.highestOneBit((int) Math.min(1 << 30, memoryBudget / (ENTRY_BYTES * 3 / 2)));
+        this.rollups = new RegionRollups(leafPrefix);
+    }
+
+    /**
+     * Imports the CSV file, replacing the rollups of an earlier import.
+     * A .zip or .gz file is read without extracting it, like {@link CSVImporter#importCSVMapped(String)} does.
+     * The runs are deleted when the import ends, also after an error.
+     * @param csvFilePath Path to the CSV file, or to a .zip or .gz file with the CSV file
+     * @return Statistics of the import; the merge of the runs is timed as {@link ImportPhase#MERGE}
+     */
+    public ImportStatistics importCSV(String csvFilePath) {
+        ImportStatistics statistics = new ImportStatistics(csvFilePath);
+        clear();
+        try {
+            ElectionCSVParser.parse(Path.of(csvFilePath), dictionary, RowFilter.all(), this::addRecord, statistics);
+            long startTime = System.nanoTime();
+            merge();
+            statistics.addPhaseTime(ImportPhase.MERGE, System.nanoTime() - startTime);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (UncheckedIOException e) {
+            e.getCause().printStackTrace();
+        } finally {
+            keys = null;
+            sums = null;
+            deleteTempFiles();
+        }
+        return statistics.finish();
+    }
+
+    private void clear() {
+        rollups = new RegionRollups(leafPrefix);
+        regionCodes.clear();
+        regionIndexes.clear();
+        parentCodes.clear();
+        lastRegionCode = null;
+        int capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+        keys = new long[capacity];
+        sums = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        runs.clear();
+        runCount = 0;
+        spilledBytes = 0;
+        emittedRegion = -1;
+        emittedPath = null;
+    }
+
+    private void addRecord(ElectionRecord record) {
+        FieldType fieldType = record.getFieldType();
+        if (!RegionRollups.isRolledUp(fieldType)) {
+            return;
+        }
+        long value = record.getLongValue(Long.MIN_VALUE);
+        if (value == Long.MIN_VALUE) {
+            return;
+        }
+        String regionCode = record.getRegionCode();
+        String parentCode = record.getParentRegionCode();
+        String grandParentCode = record.getGrandParentRegionCode();
+        if (!regionCode.startsWith(leafPrefix)) {
+            rollups.add(regionCode, parentCode, grandParentCode, fieldType, record.getListNumber(),
+                    record.getCandidateNumber(), value);
+            addParent(regionCode, parentCode);
+            addParent(parentCode, grandParentCode);
+            return;
+        }
+        long item = item(fieldType, record.getListNumber(), record.getCandidateNumber());
+        if (item >= 0) {
+            add((long) region(parentCode, grandParentCode) << 32 | item, value);
+        }
+    }
+
+    /**
+     * @return The key of the value within its region, or -1 for a list or candidate number that doesn't fit
+     */
+    private static long item(FieldType fieldType, int listNumber, int candidateNumber) {
+        if (fieldType.isCountryStat()) {
+            return (long) KIND_STAT << 30 | fieldType.ordinal() << 16;
+        }
+        if (listNumber < 0 || listNumber > MAX_LIST_NUMBER) {
+            return -1;
+        }
+        if (fieldType == FieldType.LIJST_AANTAL_STEMMEN) {
+            return (long) KIND_PARTY << 30 | listNumber << 16;
+        }
+        if (candidateNumber < 0 || candidateNumber > MAX_CANDIDATE_NUMBER) {
+            return -1;
+        }
+        return (long) KIND_CANDIDATE << 30 | listNumber << 16 | candidateNumber;
+    }
+
+    /**
+     * Returns the index of the region the rows of a leaf are added up in: its parent, or if it has none,
+     * its grandparent or the country.
+     */
+    private int region(String parentCode, String grandParentCode) {
+        String code = !isEmpty(parentCode) ? parentCode
+                : !isEmpty(grandParentCode) ? grandParentCode : RegionRollups.COUNTRY_CODE;
+        if (code == lastRegionCode) {
+            return lastRegion;
+        }
+        Integer region = regionIndexes.get(code);
+        if (region == null) {
+            region = regionCodes.size();
+            regionCodes.add(code);
+            regionIndexes.put(code, region);
+            // Keeps the regions of the rollups in order of appearance
+            rollups.addRegion(code, null, null);
+            if (code.equals(parentCode)) {
+                addParent(parentCode, grandParentCode);
+            }
+        }
+        lastRegionCode = code;
+        lastRegion = region;
+        return region;
+    }
+
+    private void addParent(String code, String parentCode) {
+        if (!isEmpty(code) && !isEmpty(parentCode) && !code.equals(parentCode)) {
+            parentCodes.putIfAbsent(code, parentCode);
+        }
+    }
+
+    private static boolean isEmpty(String code) {
+        return code == null || code.isEmpty();
+    }
+
+    /**
+     * Adds a value to the sum of its key, growing the table or spilling it to a run when it's full.
+     */
+    private void add(long key, long value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        for (long k = keys[slot]; k != EMPTY; k = keys[slot]) {
+            if (k == key) {
+                sums[slot] += value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // At most three quarters full, so probes stay short
+        if (size >= keys.length / 4 * 3) {
+            if (keys.length < maxCapacity) {
+                grow();
+            } else {
+                spill();
+            }
+            add(key, value);
+            return;
+        }
+        keys[slot] = key;
+        sums[slot] = value;
+        size++;
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldSums = sums;
+        keys = new long[oldKeys.length * 2];
+        sums = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                add(oldKeys[slot], oldSums[slot]);
+            }
+        }
+    }
+
+    /**
+     * Moves the entries of the table to its start, sorted by key. The table can't be used as a hash table
+     * until it's cleared.
+     * @return Number of entries
+     */
+    private int sortTable() {
+        int count = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                keys[count] = keys[slot];
+                sums[count] = sums[slot];
+                count++;
+            }
+        }
+        sort(keys, sums, 0, count);
+        return count;
+    }
+
+    /**
+     * Writes the sorted entries of the table to a new run and empties the table.
+     */
+    private void spill() {
+        int count = sortTable();
+        try {
+            Path run = createTempFile();
+            try (DataOutputStream out = openRun(run)) {
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(keys[i]);
+                    out.writeLong(sums[i]);
+                }
+            }
+            runs.add(run);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        runCount++;
+        spilledBytes += (long) count * ENTRY_BYTES;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Adds the sums to the rollups: straight from the table if nothing was spilled, otherwise by merging the runs,
+     * in several passes if there are more runs than read buffers fit in the budget.
+     */
+    private void merge() throws IOException {
+        if (runs.isEmpty()) {
+            int count = sortTable();
+            for (int i = 0; i < count; i++) {
+                addTotal(keys[i], sums[i]);
+            }
+            return;
+        }
+        if (size > 0) {
+            spill();
+        }
+        // The table is no longer needed, its memory is for the read buffers
+        keys = null;
+        sums = null;
+        int fanIn = (int) Math.max(2, Math.min(1024, memoryBudget / MIN_BUFFER));
+        while (runs.size() > fanIn) {
+            List<Path> group = new ArrayList<>(runs.subList(0, fanIn));
+            runs.subList(0, fanIn).clear();
+            Path merged = createTempFile();
+            try (DataOutputStream out = openRun(merged)) {
+                merge(group, (key, sum) -> {
+                    out.writeLong(key);
+                    out.writeLong(sum);
+                });
+            }
+            runs.add(merged);
+            for (Path run : group) {
+                Files.deleteIfExists(run);
+            }
+        }
+        merge(runs, this::addTotal);
+    }
+
+    /**
+     * Reads the runs in key order and passes every key once, with the sum of its sums in all runs.
+     */
+    private void merge(List<Path> runFiles, EntryConsumer consumer) throws IOException {
+        int bufferSize = bufferSize(memoryBudget / (runFiles.size() + 1));
+        PriorityQueue<Run> queue = new PriorityQueue<>(runFiles.size(), Comparator.comparingLong(Run::key));
+        List<Run> open = new ArrayList<>(runFiles.size());
+        try {
+            for (Path file : runFiles) {
+                Run run = new Run(file, bufferSize);
+                open.add(run);
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                long key = run.key;
+                long sum = run.sum;
+                if (run.next()) {
+                    queue.add(run);
+                }
+                while (!queue.isEmpty() && queue.peek().key == key) {
+                    Run other = queue.poll();
+                    sum += other.sum;
+                    if (other.next()) {
+                        queue.add(other);
+                    }
+                }
+                consumer.accept(key, sum);
+            }
+        } finally {
+            for (Run run : open) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * Adds a merged sum to its region and to the regions above it. The keys arrive sorted, so the codes
+     * are looked up once per region.
+     */
+    private void addTotal(long key, long sum) {
+        int region = (int) (key >>> 32);
+        if (region != emittedRegion) {
+            emittedRegion = region;
+            emittedPath = path(regionCodes.get(region));
+        }
+        int item = (int) key;
+        int listNumber = (item >>> 16) & MAX_LIST_NUMBER;
+        int candidateNumber = item & MAX_CANDIDATE_NUMBER;
+        FieldType fieldType;
+        switch (item >>> 30) {
+            case KIND_STAT -> {
+                fieldType = FIELD_TYPES[listNumber];
+                listNumber = -1;
+                candidateNumber = -1;
+            }
+            case KIND_PARTY -> {
+                fieldType = FieldType.LIJST_AANTAL_STEMMEN;
+                candidateNumber = -1;
+            }
+            default -> fieldType = FieldType.KANDIDAAT_AANTAL_STEMMEN;
+        }
+        for (String code : emittedPath) {
+            rollups.addRolledUp(code, fieldType, listNumber, candidateNumber, sum);
+        }
+    }
+
+    /**
+     * @return The code of the region and the codes above it, up to and including the country
+     */
+    private List<String> path(String code) {
+        List<String> path = new ArrayList<>(4);
+        for (String c = code; c != null && !path.contains(c); c = parentCodes.get(c)) {
+            path.add(c);
+        }
+        if (!path.contains(RegionRollups.COUNTRY_CODE)) {
+            path.add(RegionRollups.COUNTRY_CODE);
+        }
+        return path;
+    }
+
+    private Path createTempFile() throws IOException {
+        Path file = tempDirectory != null ? Files.createTempFile(tempDirectory, "rollup", ".run")
+                : Files.createTempFile("rollup", ".run");
+        tempFiles.add(file);
+        return file;
+    }
+
+    private DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run),
+                bufferSize(memoryBudget / 8)));
+    }
+
+    private static int bufferSize(long bytes) {
+        return (int) Math.max(MIN_BUFFER, Math.min(MAX_BUFFER, bytes));
+    }
+
+    private void deleteTempFiles() {
+        for (Path file : tempFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Warning: could not delete " + file + ": " + e.getMessage());
+            }
+        }
+        tempFiles.clear();
+    }
+
+    /**
+     * Sorts the keys ascending and moves the sums along (quicksort; the keys in the table are unique).
+     */
+    private static void sort(long[] keys, long[] sums, int from, int to) {
+        while (to - from > 16) {
+            long pivot = keys[(from + to) >>> 1];
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, sums, i++, j--);
+                }
+            }
+            // Recurses into the smaller part, so the stack stays shallow
+            if (j + 1 - from < to - i) {
+                sort(keys, sums, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, sums, i, to);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && keys[j - 1] > keys[j]; j--) {
+                swap(keys, sums, j - 1, j);
+            }
+        }
+    }
+
+    private static void swap(long[] keys, long[] sums, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long sum = sums[i];
+        sums[i] = sums[j];
+        sums[j] = sum;
+    }
+
+    /**
+     * A run that is read entry by entry.
+     */
+    private static final class Run implements Closeable {
+        private final DataInputStream in;
+        private long remaining;
+        private long key;
+        private long sum;
+
+        Run(Path file, int bufferSize) throws IOException {
+            this.remaining = Files.size(file) / ENTRY_BYTES;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), bufferSize));
+        }
+
+        long key() {
+            return key;
+        }
+
+        /**
+         * Reads the next entry.
+         * @return False at the end of the run
+         */
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            key = in.readLong();
+            sum = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the rollups of the last import: the totals of the regions above the leaves.
+     * {@link RegionRollups#getTotals(String)} returns null for a leaf.
+     */
+    public RegionRollups getRollups() {
+        return rollups;
+    }
+
+    /**
+     * @return Number of runs the last import wrote, 0 if its sums fitted in the budget
+     */
+    public int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * @return Bytes of the runs the last import wrote, without the runs of merge passes
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public String getLeafPrefix() {
+        return leafPrefix;
+    }
+
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+}
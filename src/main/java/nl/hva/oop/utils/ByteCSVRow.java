@@ -0,0 +1,244 @@
+package nl.hva.oop.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * {@link CSVRow} that works directly on the UTF-8 bytes of a line inside a {@link ByteBuffer}.
+ * Only the column delimiters are located when a line is set; text is decoded on request,
+ * and numbers and codes are parsed and compared on the bytes themselves.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class ByteCSVRow implements CSVRow {
+    private static final byte SEPARATOR = ';';
+
+    private ByteBuffer buffer;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+    private byte[] scratch = new byte[64];
+    private Utf8StringCache cache;
+    // Slot per column of the schema, null to split every column
+    private int[] slots;
+
+    /**
+     * Reads the next lines with the schema of their file: every column is stored in its slot, the columns without
+     * a slot are skipped without trimming them, and the delimiters after the last column of the schema aren't looked
+     * for. {@link #columnCount()} is then {@link CSVSchema#SLOTS} for a row with every column of the schema, and 0
+     * for a shorter row.
+     * @param schema Schema of the lines, or null to split every column of a line
+     */
+    void setSchema(CSVSchema schema) {
+        if (schema == null) {
+            slots = null;
+            return;
+        }
+        slots = new int[schema.columnCount()];
+        for (int column = 0; column < slots.length; column++) {
+            slots[column] = schema.slotOf(column);
+        }
+        // A slot the file doesn't have is always empty
+        starts = new int[CSVSchema.SLOTS];
+        ends = new int[CSVSchema.SLOTS];
+    }
+
+    /**
+     * Points this row at the bytes between lineStart (inclusive) and lineEnd (exclusive),
+     * finding the column boundaries and trimming them like {@link String#trim()} does.
+     */
+    ByteCSVRow set(ByteBuffer buffer, int lineStart, int lineEnd) {
+        this.buffer = buffer;
+        if (slots != null) {
+            return set(lineStart, lineEnd, slots);
+        }
+        count = 0;
+        int start = lineStart;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer.get(i) == SEPARATOR) {
+                addColumn(start, i);
+                start = i + 1;
+            }
+        }
+        addColumn(start, lineEnd);
+        return this;
+    }
+
+    private ByteCSVRow set(int lineStart, int lineEnd, int[] slots) {
+        int lastColumn = slots.length - 1;
+        int column = 0;
+        int start = lineStart;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer.get(i) == SEPARATOR) {
+                int slot = slots[column];
+                if (slot >= 0) {
+                    setColumn(slot, start, i);
+                }
+                if (column == lastColumn) {
+                    count = CSVSchema.SLOTS;
+                    return this;
+                }
+                column++;
+                start = i + 1;
+            }
+        }
+        // The last column of the line
+        if (column == lastColumn) {
+            int slot = slots[column];
+            if (slot >= 0) {
+                setColumn(slot, start, lineEnd);
+            }
+            count = CSVSchema.SLOTS;
+        } else {
+            count = 0;
+        }
+        return this;
+    }
+
+    private void addColumn(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        setColumn(count, start, end);
+        count++;
+    }
+
+    private void setColumn(int col, int start, int end) {
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        starts[col] = start;
+        ends[col] = end;
+    }
+
+    @Override
+    public int columnCount() {
+        return count;
+    }
+
+    @Override
+    public String get(int col) {
+        int start = starts[col];
+        int length = ends[col] - start;
+        if (length == 0) {
+            return "";
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Looks the bytes up in a {@link Utf8StringCache}, so repeated values are neither decoded nor allocated again.
+     */
+    @Override
+    public String get(int col, StringDictionary dictionary) {
+        if (starts[col] == ends[col]) {
+            return "";
+        }
+        return cache(dictionary).lookup(buffer, starts[col], ends[col]);
+    }
+
+    @Override
+    public int getId(int col, StringDictionary dictionary) {
+        return cache(dictionary).lookupId(buffer, starts[col], ends[col]);
+    }
+
+    private Utf8StringCache cache(StringDictionary dictionary) {
+        if (cache == null || cache.getDictionary() != dictionary) {
+            cache = new Utf8StringCache(dictionary);
+        }
+        return cache;
+    }
+
+    @Override
+    public boolean isEmpty(int col) {
+        return starts[col] == ends[col];
+    }
+
+    @Override
+    public int length(int col) {
+        return ends[col] - starts[col];
+    }
+
+    @Override
+    public boolean contentEquals(int col, String value) {
+        int start = starts[col];
+        if (ends[col] - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer.get(start + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equalsIgnoreCase(int col, String value) {
+        int start = starts[col];
+        if (ends[col] - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            int b = buffer.get(start + i);
+            char c = value.charAt(i);
+            if (b != c && Character.toLowerCase((char) b) != Character.toLowerCase(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startsWith(int col, char c) {
+        return starts[col] < ends[col] && buffer.get(starts[col]) == c;
+    }
+
+    @Override
+    public int getInt(int col, int defaultVal) {
+        long value = getLong(col, Long.MIN_VALUE);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return defaultVal;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Same rules as {@link Long#parseLong(String)} for ASCII input: an optional sign followed by at least one digit.
+     * Long.MIN_VALUE itself is reported as invalid, which is fine for election counts.
+     */
+    @Override
+    public long getLong(int col, long defaultVal) {
+        int i = starts[col];
+        int end = ends[col];
+        if (i == end) {
+            return defaultVal;
+        }
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                return defaultVal;
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return defaultVal;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,94 @@
+package nl.hva.oop.utils;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.function.Consumer;
+
+/**
+ * Watches a growing CSV file and imports the lines appended to it with
+ * {@link CSVImporter#importCSVIncremental(String)}, e.g. on election night.
+ * All imports run on the watcher's own thread, starting with the lines already in the file;
+ * the importer must not be used for anything else while it's watched. An import or listener that fails is reported
+ * on System.err and the watcher keeps watching; the next change imports the lines that weren't imported again.
+ * <p>
+ * On file systems without native change notifications, the JDK polls the directory every few seconds.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class CSVFileWatcher implements AutoCloseable {
+    private final CSVImporter importer;
+    private final Path csvFile;
+    private final Consumer<ImportStatistics> onUpdate;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /**
+     * Starts watching the file.
+     * @param importer Importer to import the new lines into
+     * @param csvFilePath Path to the CSV file
+     * @param onUpdate Receives the statistics of every import that read new rows, on the watcher's thread
+     * @throws IOException If the directory of the file can't be watched
+     */
+    public CSVFileWatcher(CSVImporter importer, String csvFilePath, Consumer<ImportStatistics> onUpdate)
+            throws IOException {
+        this.importer = importer;
+        this.csvFile = Path.of(csvFilePath).toAbsolutePath();
+        this.onUpdate = onUpdate;
+        this.watchService = csvFile.getFileSystem().newWatchService();
+        csvFile.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = Thread.ofPlatform().name("csv-watcher-" + csvFile.getFileName()).daemon().start(this::run);
+    }
+
+    private void run() {
+        update();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // After an overflow, events may have been lost: check the file anyway
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || csvFile.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    update();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void update() {
+        if (!Files.exists(csvFile)) {
+            return;
+        }
+        // A failed import or listener must not stop the watcher: the next change is imported again
+        try {
+            ImportStatistics statistics = importer.importCSVIncremental(csvFile.toString());
+            if (statistics.getRowsRead() > 0) {
+                onUpdate.accept(statistics);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Update of " + csvFile + " failed, still watching: " + e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops watching, waiting for a running import to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,18 +4,29 @@ import nl.hva.oop.models.*;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
 
 /**
  * Imports election data from a CSV file, storing it in memory.
+ * The importer is an {@link ElectionRecordListener}: every import mode feeds it through the {@link ElectionCSVParser}.
  * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
  */
-public class CSVImporter {
-    private final List<Country> country = new ArrayList<>();
-    private final List<Province> provinces = new ArrayList<>();
-    private final List<Municipality> municipalities = new ArrayList<>();
-    private final Map<String, Country> countryByCode = new HashMap<>();
-    private final Map<String, Province> provinceByCode = new HashMap<>();
+public class CSVImporter implements ElectionRecordListener {
+    // The country, the provinces and the municipalities, one object per region code
+    private final RegionRegistry regions = new RegionRegistry();
 
     // Store country stats in a map:
     private final Map<String, Long> countryStats = new LinkedHashMap<>();
@@ -26,237 +37,753 @@ public class CSVImporter {
     // Also store region -> (partyName -> Party), so each region has its own Party objects.
     private final Map<String, Map<String, Party>> regionPartyMap = new HashMap<>();
 
-    private static final String SEPARATOR = ";";
+    // One canonical instance per distinct text value, shared with the partial importers of importCSVParallel
+    private final StringDictionary dictionary;
+
+    // The object graph above and/or a columnar store of the same data
+    private boolean objectGraphEnabled = true;
+    private VoteFactStore voteFactStore;
+    private RegionRollups rollups;
+
+    // The rows to import, checked before a line is split
+    private RowFilter rowFilter = RowFilter.all();
+
+    // Changes whenever an import starts or ends, so caches of derived data (e.g. Rankings) know they're outdated
+    private volatile long generation;
+
+    // The immutable result of the last finished import, replaced (never changed) by the next one
+    private volatile ElectionSnapshot snapshot;
+
+    // The file of importCSVIncremental and the number of its bytes imported so far, always ending with a complete line
+    private Path incrementalFile;
+    private long incrementalOffset;
+    // Identity of that file (e.g. its inode) and the CRC32C of the last bytes imported, to notice a replaced file
+    private Object incrementalFileKey;
+    private long incrementalChecksum;
+
+    // Number of bytes before the offset of importCSVIncremental that are compared on the next call
+    private static final int INCREMENTAL_CHECK_BYTES = 4096;
+
+    // Number of chunks per thread for importCSVParallel, so a slow chunk doesn't keep the other threads idle
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /*
+     * Only set for the partial importers of importCSVParallel: the region rows (in file order)
+     * and the parties whose seats were set, so the merge can replay them exactly as a sequential import would.
+     */
+    private final List<RegionRow> regionRows;
+    private final Set<Party> seatsAssigned;
+
+    /**
+     * Handles a party line of one veldType, for the party in the region and the same party in the global map.
+     */
+    @FunctionalInterface
+    private interface PartyLineHandler {
+        void handle(CSVImporter importer, ElectionRecord record, Party partyInRegion, Party globalParty);
+    }
+
+    // Handler per veldType for handlePartyLine; the same for every importer, so it takes the importer
+    private static final Map<FieldType, PartyLineHandler> PARTY_LINE_HANDLERS = new EnumMap<>(FieldType.class);
+
+    static {
+        PARTY_LINE_HANDLERS.put(FieldType.LIJST_AANTAL_ZETELS, CSVImporter::handleSeats);
+        PARTY_LINE_HANDLERS.put(FieldType.KANDIDAAT_GEKOZEN, CSVImporter::handleChosen);
+        PARTY_LINE_HANDLERS.put(FieldType.KANDIDAAT_AANTAL_STEMMEN, CSVImporter::handleCandidateVotes);
+    }
+
+    private record RegionRow(RegionRegistry.Level level, String name, String code, String parentCode,
+                             String grandParentCode) {
+    }
+
+    public CSVImporter() {
+        this(new StringDictionary());
+    }
+
+    /**
+     * Creates an importer that stores its text values in the given dictionary,
+     * e.g. to share one dictionary between the imports of several elections.
+     * @param dictionary Dictionary to use
+     */
+    public CSVImporter(StringDictionary dictionary) {
+        this(dictionary, false);
+    }
+
+    private CSVImporter(StringDictionary dictionary, boolean partial) {
+        this.dictionary = dictionary;
+        this.regionRows = partial ? new ArrayList<>() : null;
+        this.seatsAssigned = partial ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        this.snapshot = new ElectionSnapshot(0, Map.of(), Map.of(), Map.of(), regions.copy());
+    }
 
     /**
      * Imports the CSV file, parsing it line by line.
+     * A .zip or .gz file is read without extracting it, like {@link #importCSVMapped(String)} does.
+     * @param csvFilePath Path to the CSV file, or to a .zip or .gz file with the CSV file
+     * @return Statistics of the import
+     */
+    public ImportStatistics importCSV(String csvFilePath) {
+        ImportStatistics statistics = new ImportStatistics(csvFilePath);
+        generation++;
+        if (ArchiveCSVReader.isArchive(Path.of(csvFilePath))) {
+            importCSVMapped(csvFilePath, statistics);
+            return finish(statistics);
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(csvFilePath, StandardCharsets.UTF_8))) {
+            ElectionCSVParser.parse(br, dictionary, rowFilter, this, statistics);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return finish(statistics);
+    }
+
+    /**
+     * Imports the CSV file by memory-mapping it and parsing the UTF-8 bytes directly.
+     * Fills the same maps as {@link #importCSV(String)}, but without creating a String per line or per column:
+     * only the text columns that end up in the model are decoded.
+     * <p>
+     * A .zip or .gz file is read without extracting it to disk: a thread of its own inflates it while this thread
+     * parses the inflated lines. Of a .zip file, the first file whose name ends with ".csv" is imported.
+     * @param csvFilePath Path to the CSV file, or to a .zip or .gz file with the CSV file
+     * @return Statistics of the import
+     */
+    public ImportStatistics importCSVMapped(String csvFilePath) {
+        ImportStatistics statistics = new ImportStatistics(csvFilePath);
+        generation++;
+        importCSVMapped(csvFilePath, statistics);
+        return finish(statistics);
+    }
+
+    /**
+     * @return False if the file couldn't be read completely, so the imported data may be partial
+     */
+    private boolean importCSVMapped(String csvFilePath, ImportStatistics statistics) {
+        try {
+            ElectionCSVParser.parse(Path.of(csvFilePath), dictionary, rowFilter, this, statistics);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Imports the CSV file, or loads the snapshot of an earlier import of the same file.
+     * The snapshot is stored next to the CSV file (with ".snapshot" appended to its name) and is only used
+     * while the size, modification time and content hash of the CSV file are unchanged;
+     * otherwise the file is imported with {@link #importCSVMapped(String)} and, if that read the whole file,
+     * a new snapshot is written.
+     * With a {@link #setRowFilter(RowFilter) row filter}, the file is always imported and no snapshot is written.
+     * @param csvFilePath Path to the CSV file, or to a .zip or .gz file with the CSV file
+     * @return Statistics of the import; without any rows read if the snapshot was loaded
+     */
+    public ImportStatistics importCSVCached(String csvFilePath) {
+        ImportStatistics statistics = new ImportStatistics(csvFilePath);
+        generation++;
+        if (!rowFilter.isAll()) {
+            // A snapshot holds all rows of the file
+            importCSVMapped(csvFilePath, statistics);
+            return finish(statistics);
+        }
+        Path source = Path.of(csvFilePath);
+        Path snapshot = Path.of(csvFilePath + ".snapshot");
+        ImportStatistics.Phase load = statistics.begin(ImportPhase.SNAPSHOT_LOAD);
+        try {
+            if (ImportSnapshot.load(this, snapshot, source)) {
+                return finish(statistics);
+            }
+        } catch (IOException | RuntimeException e) {
+            // A damaged snapshot is simply replaced
+            System.err.println("Ignoring unreadable snapshot " + snapshot + ": " + e);
+            clear();
+        } finally {
+            load.end(0);
+        }
+
+        if (!importCSVMapped(csvFilePath, statistics)) {
+            // Never save a partial import as a valid snapshot
+            return finish(statistics);
+        }
+        ImportStatistics.Phase write = statistics.begin(ImportPhase.SNAPSHOT_WRITE);
+        try {
+            ImportSnapshot.write(this, snapshot, source);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            write.end(0);
+        }
+        return finish(statistics);
+    }
+
+    /**
+     * Imports the CSV file on all available processors.
      * @param csvFilePath Path to the CSV file
+     * @return Statistics of the import
+     * @see #importCSVParallel(String, int)
      */
-    public void importCSV(String csvFilePath) {
-        try (BufferedReader br = new BufferedReader(new FileReader(csvFilePath))) {
-            String line;
-            boolean isHeader = true;
+    public ImportStatistics importCSVParallel(String csvFilePath) {
+        return importCSVParallel(csvFilePath, Runtime.getRuntime().availableProcessors());
+    }
 
-            while ((line = br.readLine()) != null) {
-                // Skip the header line
-                if (isHeader) {
-                    isHeader = false;
-                    continue;
+    /**
+     * Imports the CSV file in parallel. The file is memory-mapped and split into line-aligned byte ranges,
+     * which are parsed on a {@link ForkJoinPool} into partial importers of their own.
+     * The partials are merged in file order afterwards, so the result is the same as {@link #importCSV(String)}.
+     * A .zip or .gz file can't be split, so it's imported by {@link #importCSVMapped(String)} instead.
+     * @param csvFilePath Path to the CSV file
+     * @param parallelism Number of threads to parse with
+     * @return Statistics of the import, with the parse and handle times summed over all threads
+     */
+    public ImportStatistics importCSVParallel(String csvFilePath, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+        }
+        ImportStatistics statistics = new ImportStatistics(csvFilePath);
+        generation++;
+        if (ArchiveCSVReader.isArchive(Path.of(csvFilePath))) {
+            importCSVMapped(csvFilePath, statistics);
+            return finish(statistics);
+        }
+
+        try (FileChannel channel = FileChannel.open(Path.of(csvFilePath), StandardOpenOption.READ);
+             ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            long[] bounds = splitIntoLines(channel, parallelism * CHUNKS_PER_THREAD);
+            // Only the first chunk has the header
+            CSVSchema schema = CSVSchema.read(channel);
+
+            List<Callable<CSVImporter>> tasks = new ArrayList<>();
+            ImportStatistics[] partialStatistics = new ImportStatistics[bounds.length - 1];
+            for (int i = 0; i < bounds.length - 1; i++) {
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                boolean skipHeader = i == 0;
+                ImportStatistics chunkStatistics = new ImportStatistics(csvFilePath);
+                partialStatistics[i] = chunkStatistics;
+                tasks.add(() -> {
+                    CSVImporter partial = new CSVImporter(dictionary, true);
+                    partial.objectGraphEnabled = objectGraphEnabled;
+                    partial.setVoteFactStoreEnabled(voteFactStore != null);
+                    if (rollups != null) {
+                        partial.setRollups(new RegionRollups(rollups.getLeafPrefix()));
+                    }
+                    ElectionCSVParser.parse(channel, from, to, skipHeader, schema, dictionary, rowFilter, partial,
+                            chunkStatistics);
+                    return partial;
+                });
+            }
+
+            // Merge in file order, so "first seen" and "last written" values match a sequential import
+            List<Future<CSVImporter>> results = pool.invokeAll(tasks);
+            for (ImportStatistics chunkStatistics : partialStatistics) {
+                statistics.add(chunkStatistics);
+            }
+            ImportStatistics.Phase mergePhase = statistics.begin(ImportPhase.MERGE);
+            try {
+                for (Future<CSVImporter> result : results) {
+                    merge(result.get());
                 }
+            } finally {
+                mergePhase.end(0);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return finish(statistics);
+    }
 
-                // Split into columns
-                String[] cols = line.split(SEPARATOR, -1);
-                if (cols.length < 16) {
-                    continue;
+    /**
+     * Imports the lines appended to the CSV file since the previous call, e.g. while the results of an election
+     * night come in. The first call imports the whole file. Only complete lines are imported: a last line without
+     * a newline is left for the next call, so a line the Kiesraad is still writing is never read half.
+     * <p>
+     * The new rows update the existing parties, candidates and country stats: seats are set, a candidate stays chosen
+     * and the highest vote count is kept, so reading a row again has no effect. The {@link RegionRollups}
+     * take the last value of a row. If the file was truncated, replaced by another file (e.g. moved over it) or
+     * the last imported block of it changed, it's imported again from the start. A change to earlier lines of the
+     * same file that keeps its size and its last block is not noticed.
+     * Use one importer per file, and don't mix this with the other import methods.
+     * @param csvFilePath Path to the CSV file
+     * @return Statistics of the import of the new lines; without any rows read if nothing was appended
+     * @throws IllegalArgumentException If the file is a .zip or .gz file, which can't be read from an offset
+     * @see CSVFileWatcher
+     */
+    public ImportStatistics importCSVIncremental(String csvFilePath) {
+        Path path = Path.of(csvFilePath);
+        if (ArchiveCSVReader.isArchive(path)) {
+            throw new IllegalArgumentException("Can't import a .zip or .gz file incrementally: " + csvFilePath);
+        }
+        ImportStatistics statistics = new ImportStatistics(csvFilePath);
+        generation++;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            long size = channel.size();
+            if (!path.equals(incrementalFile) || !Objects.equals(fileKey, incrementalFileKey)
+                    || size < incrementalOffset || checksumBefore(channel, incrementalOffset) != incrementalChecksum) {
+                // Another file, or the file was replaced: start over
+                if (incrementalFile != null) {
+                    clear();
                 }
+                incrementalFile = path;
+                incrementalFileKey = fileKey;
+                incrementalOffset = 0;
+                incrementalChecksum = checksumBefore(channel, 0);
+            }
 
-                String regio = cols[0].trim();
-                String regioCode = cols[1].trim();
-                String ouderRegioCode = cols[2].trim();
-                String grootOuderRegioCode = cols[3].trim();
-
-                // Potential fields for stats in col[14], col[15]
-                String veldType = cols[14].trim();
-                String veldWaarde = cols[15].trim();
-
-                // If it's "Nederland;L528" => country lines
-                if (regio.equalsIgnoreCase("Nederland") && regioCode.equalsIgnoreCase("L528")) {
-                    /*
-                     * Only store *actual* country statistics in countryStats map.
-                     * That is, skip lines whose veldType is "KandidaatAantalStemmen",
-                     * "KandidaatGekozen", "LijstAantalZetels", "LijstAantalStemmen", etc.
-                     */
-                    if (!veldType.isEmpty() && !veldWaarde.isEmpty()) {
-                        if (isCountryStat(veldType)) {
-                            try {
-                                long value = Long.parseLong(veldWaarde);
-                                String humanReadableKey = FieldNameFormatter.toHumanReadable(veldType);
-                                countryStats.put(humanReadableKey, value);
-                            } catch (NumberFormatException ignored) {
-                                // col[15] might not be numeric
-                            }
-                        }
-                    }
-                    findOrCreateCountry(regio, regioCode);
+            long end = lastLineEnd(channel, incrementalOffset, size);
+            if (end > incrementalOffset) {
+                ElectionCSVParser.parse(channel, incrementalOffset, end, incrementalOffset == 0,
+                        CSVSchema.read(channel), dictionary, rowFilter, this, statistics);
+                incrementalOffset = end;
+                incrementalChecksum = checksumBefore(channel, end);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return finish(statistics);
+    }
 
-                    // Also parse any party/candidate data at the country level
-                    // (e.g. "KandidaatAantalStemmen", "LijstAantalZetels", etc.)
-                    handlePartyLine(cols, "Nederland");
-                    continue;
+    /**
+     * Returns the number of bytes of the file of {@link #importCSVIncremental(String)} imported so far.
+     */
+    public long getIncrementalOffset() {
+        return incrementalOffset;
+    }
+
+    /**
+     * @return CRC32C of the (at most) {@value #INCREMENTAL_CHECK_BYTES} bytes before the position
+     */
+    private static long checksumBefore(FileChannel channel, long position) throws IOException {
+        int length = (int) Math.min(position, INCREMENTAL_CHECK_BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position - length + buffer.position()) < 0) {
+                break;
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.flip());
+        return crc.getValue();
+    }
+
+    /**
+     * @return Offset just after the last newline between from and size, or from if there is none
+     */
+    private static long lastLineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long end = size;
+        while (end > from) {
+            long start = Math.max(from, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            int read = 0;
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, start + read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            for (int i = read - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
                 }
+            }
+            end = start;
+        }
+        return from;
+    }
+
+    /**
+     * Ends an import: bumps the generation again, so data read during the import is seen as outdated too,
+     * and publishes the result as a new {@link ElectionSnapshot}.
+     */
+    private ImportStatistics finish(ImportStatistics statistics) {
+        generation++;
+        snapshot = new ElectionSnapshot(generation, countryStats, regionPartyMap, globalPartyMap, regions.copy());
+        return statistics.finish();
+    }
+
+    /**
+     * Splits the channel into at most the given number of byte ranges, each starting at the beginning of a line.
+     * @return Range boundaries, starting with 0 and ending with the channel size
+     */
+    private static long[] splitIntoLines(FileChannel channel, int chunks) throws IOException {
+        long size = channel.size();
+        long[] bounds = new long[chunks + 1];
+        int count = 1;
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        for (int i = 1; i < chunks; i++) {
+            long position = Math.max(size * i / chunks, bounds[count - 1]);
+            long lineStart = nextLineStart(channel, position, size, buffer);
+            if (lineStart > bounds[count - 1] && lineStart < size) {
+                bounds[count++] = lineStart;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
 
-                // Province detection if e.g. "Groningen;P20;L528;..."
-                if (regioCode.startsWith("P") && ouderRegioCode.equalsIgnoreCase("L528")) {
-                    findOrCreateProvince(regio, regioCode);
-                    handlePartyLine(cols, regio);
-                    continue;
+    /**
+     * @return Offset of the first line that starts after the given position
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer)
+            throws IOException {
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
                 }
+            }
+            position += read;
+        }
+        return size;
+    }
 
-                // Municipality detection if e.g. "Amsterdam;K9;P27;L528;..."
-                if (regioCode.startsWith("K") || regioCode.startsWith("G")) {
-                    Province parentProv = provinceByCode.get(ouderRegioCode);
-                    if (parentProv != null) {
-                        findOrCreateMunicipality(regio, regioCode, parentProv);
-                    } else {
-                        Province parent2 = provinceByCode.get(grootOuderRegioCode);
-                        if (parent2 != null) {
-                            findOrCreateMunicipality(regio, regioCode, parent2);
-                        }
-                    }
-                    handlePartyLine(cols, regio);
-                    continue;
+    /**
+     * Merges a partial importer of {@link #importCSVParallel} into this one.
+     * Partials must be merged in file order.
+     */
+    private void merge(CSVImporter partial) {
+        for (RegionRow row : partial.regionRows) {
+            switch (row.level()) {
+                case COUNTRY -> addCountry(row.name(), row.code());
+                case PROVINCE -> addProvince(row.name(), row.code());
+                case MUNICIPALITY -> addMunicipality(row.name(), row.code(), row.parentCode(), row.grandParentCode());
+            }
+        }
+
+        countryStats.putAll(partial.countryStats);
+
+        // The global parties first, so the regions can share their candidate identities
+        mergeParties(globalPartyMap, partial.globalPartyMap, partial.seatsAssigned);
+        for (Map.Entry<String, Map<String, Party>> region : partial.regionPartyMap.entrySet()) {
+            Map<String, Party> partiesInRegion =
+                    regionPartyMap.computeIfAbsent(region.getKey(), _ -> new HashMap<>());
+            mergeParties(partiesInRegion, region.getValue(), partial.seatsAssigned);
+        }
+
+        if (rollups != null) {
+            rollups.addAll(partial.rollups);
+        }
+        if (voteFactStore != null) {
+            voteFactStore.addAll(partial.voteFactStore);
+        }
+    }
+
+    /**
+     * Merges parties the way handlePartyLine would have updated them:
+     * the last seats value wins, a candidate stays chosen and the highest vote count is kept.
+     */
+    private void mergeParties(Map<String, Party> target, Map<String, Party> source, Set<Party> seatsAssigned) {
+        for (Party sourceParty : source.values()) {
+            Party party = findOrCreateParty(target, sourceParty.getListNumber(), sourceParty.getName());
+            if (seatsAssigned.contains(sourceParty)) {
+                party.setSeats(sourceParty.getSeats());
+            }
+
+            for (Candidate sourceCandidate : sourceParty.getCandidates()) {
+                int number = sourceCandidate.getCandidateNumber();
+                if (!party.hasCandidate(number)) {
+                    party.addCandidate(sharedIdentity(party.getName(), sourceCandidate.getIdentity()));
+                }
+                if (sourceCandidate.isChosen()) {
+                    party.setChosen(number, true);
+                }
+                if (sourceCandidate.getTotalVotes() > party.getTotalVotes(number)) {
+                    party.setTotalVotes(number, sourceCandidate.getTotalVotes());
                 }
+            }
+        }
+    }
+
+    /**
+     * @return The identity of the candidate in the global party, so every region shares it, or else the given one
+     */
+    private CandidateIdentity sharedIdentity(String partyName, CandidateIdentity identity) {
+        Party globalParty = globalPartyMap.get(partyName);
+        CandidateIdentity shared = globalParty != null ? globalParty.getIdentity(identity.getCandidateNumber()) : null;
+        return shared != null ? shared : identity;
+    }
+
+    /**
+     * Handles a single data row, regardless of how it was read.
+     * @param record CSV row
+     */
+    @Override
+    public void onRecord(ElectionRecord record) {
+        if (rollups != null) {
+            addRollup(record);
+        }
+        if (voteFactStore != null) {
+            addVoteFact(record);
+        }
 
-                // Otherwise, still parse any party line for that "regio"
-                handlePartyLine(cols, regio);
+        // If it's "Nederland;L528" => country lines
+        if (record.isRegion("Nederland") && record.isRegionCode("L528")) {
+            /*
+             * Only store *actual* country statistics in countryStats map.
+             * That is, skip lines whose veldType is "KandidaatAantalStemmen",
+             * "KandidaatGekozen", "LijstAantalZetels", "LijstAantalStemmen", etc.
+             */
+            FieldType fieldType = record.getFieldType();
+            if (fieldType.isCountryStat() && record.hasValue()) {
+                // The value might not be numeric
+                long value = record.getLongValue(Long.MIN_VALUE);
+                if (value != Long.MIN_VALUE) {
+                    countryStats.put(fieldType.getLabel(), value);
+                }
             }
+            addCountry(record.getRegion(), record.getRegionCode());
 
-        } catch (IOException e) {
-            e.printStackTrace();
+            // Also parse any party/candidate data at the country level
+            // (e.g. "KandidaatAantalStemmen", "LijstAantalZetels", etc.)
+            handlePartyLine(record, "Nederland");
+            return;
         }
+
+        String regio = record.getRegion();
+
+        // Province detection if e.g. "Groningen;P20;L528;..."
+        if (record.regionCodeStartsWith('P') && record.isParentRegionCode("L528")) {
+            addProvince(regio, record.getRegionCode());
+            handlePartyLine(record, regio);
+            return;
+        }
+
+        // Municipality detection if e.g. "Amsterdam;K9;P27;L528;..."
+        if (record.regionCodeStartsWith('K') || record.regionCodeStartsWith('G')) {
+            addMunicipality(regio, record.getRegionCode(), record.getParentRegionCode(),
+                    record.getGrandParentRegionCode());
+            handlePartyLine(record, regio);
+            return;
+        }
+
+        // Otherwise, still parse any party line for that "regio"
+        handlePartyLine(record, regio);
     }
 
     /**
-     * Return true if the veldType is actually one of the country statistics
-     * we want to store (e.g. "AantalBlancoStemmen", "AantalGeldigeStemmen",
-     * "AantalOngeldigeStemmen", "Kiesgerechtigden", "Opkomst", etc.).
-     * Return false if it's something like "KandidaatGekozen", "LijstAantalZetels", etc.
+     * Adds a row with party votes, candidate votes or a statistic to the {@link RegionRollups}.
      */
-    private boolean isCountryStat(String veldType) {
-        Set<String> validStats = new HashSet<>(Arrays.asList(
-                "AantalBlancoStemmen",
-                "AantalGeldigeStemmen",
-                "AantalOngeldigeStemmen",
-                "Kiesgerechtigden",
-                "Opkomst"
-        ));
-        return validStats.contains(veldType);
+    private void addRollup(ElectionRecord record) {
+        FieldType fieldType = record.getFieldType();
+        if (!RegionRollups.isRolledUp(fieldType)) {
+            return;
+        }
+        long value = record.getLongValue(Long.MIN_VALUE);
+        if (value == Long.MIN_VALUE) {
+            return;
+        }
+        rollups.add(record.getRegionCode(), record.getParentRegionCode(), record.getGrandParentRegionCode(),
+                fieldType, record.getListNumber(), record.getCandidateNumber(), value);
+    }
+
+    /**
+     * Stores a row with a veldType and a numeric value in the {@link VoteFactStore}.
+     * "KandidaatGekozen" rows are stored with value 1, whatever their value is, just like handlePartyLine does.
+     */
+    private void addVoteFact(ElectionRecord record) {
+        if (!record.hasFieldType()) {
+            return;
+        }
+        int fieldTypeId = record.getFieldTypeId();
+        int value = record.getIntValue(Integer.MIN_VALUE);
+        if (value == Integer.MIN_VALUE) {
+            if (record.getFieldType() != FieldType.KANDIDAAT_GEKOZEN) {
+                return;
+            }
+            value = 1;
+        }
+        voteFactStore.add(record.getRegionCodeId(), record.getListNumber(), record.getCandidateNumber(),
+                fieldTypeId, value);
     }
 
     /**
      * Creates/updates a Party or Candidate if the veldType is
-     * "LijstAantalZetels", "KandidaatGekozen", or "KandidaatAantalStemmen".
+     * "LijstAantalZetels", "KandidaatGekozen", or "KandidaatAantalStemmen",
+     * using the handler registered for the {@link FieldType}.
      * Also updates both region-based AND global party maps.
      */
-    private void handlePartyLine(String[] cols, String regionName) {
-        // col[5] => "LijstNummer"
-        String listNumberStr = cols[5].trim();
-        int listNumber = parseIntSafe(listNumberStr, -1);
+    void handlePartyLine(ElectionRecord record, String regionName) {
+        if (!objectGraphEnabled) {
+            return;
+        }
 
-        // col[6] => "LijstNaam" => partyName
-        String partyName = cols[6].trim();
-        if (partyName.isEmpty()) {
+        // "LijstNaam" => partyName
+        if (!record.hasPartyName()) {
             return;
         }
+        String partyName = record.getPartyName();
 
-        // col[14] => veldType
-        // col[15] => veldWaarde
-        String veldType = cols[14].trim();
-        String veldWaarde = cols[15].trim();
+        // "LijstNummer"
+        int listNumber = record.getListNumber();
 
         // Region-based map
         Map<String, Party> partiesInRegion =
                 regionPartyMap.computeIfAbsent(regionName, _ -> new HashMap<>());
 
-        Party partyInRegion = partiesInRegion.computeIfAbsent(
-                partyName, name -> new Party(listNumber, name));
+        Party partyInRegion = findOrCreateParty(partiesInRegion, listNumber, partyName);
 
         // Global map
-        Party globalParty = globalPartyMap.computeIfAbsent(
-                partyName, name -> new Party(listNumber, name));
-
-        switch (veldType) {
-            case "LijstAantalZetels": {
-                if (!veldWaarde.isEmpty()) {
-                    int seats = parseIntSafe(veldWaarde, 0);
-                    partyInRegion.setSeats(seats);
-                    globalParty.setSeats(seats);
-                }
-                break;
-            }
-            case "KandidaatGekozen": {
-                Candidate candidateRegion = parseCandidate(cols, partyInRegion);
-                if (candidateRegion != null) {
-                    candidateRegion.setChosen(true);
-                }
-                Candidate candidateGlobal = parseCandidate(cols, globalParty);
-                if (candidateGlobal != null) {
-                    candidateGlobal.setChosen(true);
-                }
-                break;
+        Party globalParty = findOrCreateParty(globalPartyMap, listNumber, partyName);
+
+        // Other veldTypes (e.g. "LijstAantalStemmen") only create the parties
+        PartyLineHandler handler = PARTY_LINE_HANDLERS.get(record.getFieldType());
+        if (handler != null) {
+            handler.handle(this, record, partyInRegion, globalParty);
+        }
+    }
+
+    /**
+     * Same as computeIfAbsent, without creating a capturing lambda for every row.
+     */
+    private Party findOrCreateParty(Map<String, Party> parties, int listNumber, String partyName) {
+        Party party = parties.get(partyName);
+        if (party == null) {
+            party = new Party(listNumber, partyName, dictionary);
+            parties.put(partyName, party);
+        }
+        return party;
+    }
+
+    private void handleSeats(ElectionRecord record, Party partyInRegion, Party globalParty) {
+        if (record.hasValue()) {
+            int seats = record.getIntValue(0);
+            partyInRegion.setSeats(seats);
+            globalParty.setSeats(seats);
+            if (seatsAssigned != null) {
+                seatsAssigned.add(partyInRegion);
+                seatsAssigned.add(globalParty);
             }
-            case "KandidaatAantalStemmen": {
-                if (!veldWaarde.isEmpty()) {
-                    int votes = parseIntSafe(veldWaarde, 0);
-
-                    Candidate candidateRegion = parseCandidate(cols, partyInRegion);
-                    if (candidateRegion != null) {
-                        // Only update if new votes > existing
-                        if (votes > candidateRegion.getTotalVotes()) {
-                            candidateRegion.setTotalVotes(votes);
-                        }
-                    }
+        }
+    }
 
-                    Candidate candidateGlobal = parseCandidate(cols, globalParty);
-                    if (candidateGlobal != null) {
-                        // Same logic: only store if higher
-                        if (votes > candidateGlobal.getTotalVotes()) {
-                            candidateGlobal.setTotalVotes(votes);
-                        }
-                    }
+    private void handleChosen(ElectionRecord record, Party partyInRegion, Party globalParty) {
+        int candidateNumber = parseCandidate(record, partyInRegion, globalParty);
+        if (candidateNumber >= 0) {
+            partyInRegion.setChosen(candidateNumber, true);
+            globalParty.setChosen(candidateNumber, true);
+        }
+    }
+
+    private void handleCandidateVotes(ElectionRecord record, Party partyInRegion, Party globalParty) {
+        if (record.hasValue()) {
+            int votes = record.getIntValue(0);
+
+            int candidateNumber = parseCandidate(record, partyInRegion, globalParty);
+            if (candidateNumber >= 0) {
+                // Only update if new votes > existing
+                if (votes > partyInRegion.getTotalVotes(candidateNumber)) {
+                    partyInRegion.setTotalVotes(candidateNumber, votes);
+                }
+                // Same logic: only store if higher
+                if (votes > globalParty.getTotalVotes(candidateNumber)) {
+                    globalParty.setTotalVotes(candidateNumber, votes);
                 }
-                break;
             }
-            // ignore others
-            default:
-                break;
         }
     }
 
     /**
-     * Parses a candidate from the CSV line, adding it to the party if it doesn't exist.
+     * Parses a candidate from the CSV line, adding it to the party in the region and the global party
+     * if they don't have it yet. Who the candidate is, is only created once, for the global party,
+     * and shared by all regions.
      *
-     * @param cols CSV columns
-     * @param party Party object
-     * @return Candidate object if created, null if not
+     * @param record CSV row
+     * @param partyInRegion Party in the region of the row
+     * @param globalParty The same party in the global map
+     * @return Candidate number, or -1 if the row has none
      */
-    private Candidate parseCandidate(String[] cols, Party party) {
-        int candidateNumber = parseIntSafe(cols[7].trim(), -1);
+    int parseCandidate(ElectionRecord record, Party partyInRegion, Party globalParty) {
+        int candidateNumber = record.getCandidateNumber();
         if (candidateNumber < 0) {
-            return null;
+            return -1;
         }
 
-        String initials = cols[8].trim();
-        String firstName = cols[9].trim();
-        String prefix = cols[10].trim();
-        String lastName = cols[11].trim();
-        String residence = cols[12].trim();
-        String sex = cols[13].trim();
+        CandidateIdentity identity = globalParty.getIdentity(candidateNumber);
+        if (identity == null) {
+            // Only now looking up the name columns
+            identity = new CandidateIdentity(candidateNumber, record.getInitials(), record.getFirstName(),
+                    record.getPrefix(), record.getLastName(), record.getResidence(), record.getSex(), dictionary);
+            globalParty.addCandidate(identity);
+        }
+        if (!partyInRegion.hasCandidate(candidateNumber)) {
+            partyInRegion.addCandidate(identity);
+        }
+        return candidateNumber;
+    }
 
-        // Check if a candidate already exists
-        for (Candidate c : party.getCandidates()) {
-            if (c.getCandidateNumber() == candidateNumber) {
-                return c;
-            }
+    /**
+     * Adds the region of a country row to the hierarchy.
+     * A partial importer only records it, because the merge has to replay it in file order.
+     */
+    private void addCountry(String name, String code) {
+        if (regionRows != null) {
+            regionRows.add(new RegionRow(RegionRegistry.Level.COUNTRY, name, code, null, null));
+        } else {
+            findOrCreateCountry(name, code);
         }
+    }
 
-        // Otherwise create
-        Candidate newC = new Candidate(party, candidateNumber, initials, firstName, prefix, lastName, residence, sex);
-        party.addCandidate(newC);
-        return newC;
+    /**
+     * Adds the region of a province row to the hierarchy.
+     */
+    private void addProvince(String name, String code) {
+        if (regionRows != null) {
+            regionRows.add(new RegionRow(RegionRegistry.Level.PROVINCE, name, code, null, null));
+        } else {
+            findOrCreateProvince(name, code);
+        }
     }
 
     /**
-     * Safely parses an integer from a string, returning a default value if it fails.
-     * @param str String to parse
-     * @param defaultVal Default value
-     * @return Parsed integer or default value
+     * Adds the region of a municipality row to the hierarchy, below the province
+     * of its parent or grandparent code. Municipalities of an unknown province are skipped.
      */
-    private int parseIntSafe(String str, int defaultVal) {
-        try {
-            return Integer.parseInt(str);
-        } catch (NumberFormatException e) {
-            return defaultVal;
+    private void addMunicipality(String name, String code, String parentCode, String grandParentCode) {
+        if (regionRows != null) {
+            regionRows.add(new RegionRow(RegionRegistry.Level.MUNICIPALITY, name, code, parentCode,
+                    grandParentCode));
+            return;
+        }
+        Province parentProv = regions.getProvince(parentCode);
+        if (parentProv != null) {
+            findOrCreateMunicipality(name, code, parentProv, parentCode);
+        } else {
+            Province parent2 = regions.getProvince(grandParentCode);
+            if (parent2 != null) {
+                findOrCreateMunicipality(name, code, parent2, parentCode);
+            }
+        }
+    }
+
+    /**
+     * Removes all imported data, e.g. after a failed attempt to load a snapshot.
+     */
+    private void clear() {
+        generation++;
+        incrementalFile = null;
+        incrementalFileKey = null;
+        incrementalOffset = 0;
+        incrementalChecksum = 0;
+        regions.clear();
+        countryStats.clear();
+        globalPartyMap.clear();
+        regionPartyMap.clear();
+        if (voteFactStore != null) {
+            voteFactStore = new VoteFactStore(dictionary);
+        }
+        if (rollups != null) {
+            rollups = new RegionRollups(rollups.getLeafPrefix());
         }
     }
 
@@ -266,14 +793,13 @@ public class CSVImporter {
      * @param code Country code
      * @return Country object
      */
-    private Country findOrCreateCountry(String name, String code) {
-        Country existing = countryByCode.get(code);
+    Country findOrCreateCountry(String name, String code) {
+        Country existing = regions.getCountry(code);
         if (existing != null) {
             return existing;
         }
-        Country c = new Country(name, code);
-        country.add(c);
-        countryByCode.put(code, c);
+        Country c = new Country(name, code, dictionary);
+        regions.add(c);
         return c;
     }
 
@@ -283,32 +809,52 @@ public class CSVImporter {
      * @param code Province code
      * @return Province object
      */
-    private Province findOrCreateProvince(String name, String code) {
-        Province existing = provinceByCode.get(code);
+    Province findOrCreateProvince(String name, String code) {
+        Province existing = regions.getProvince(code);
         if (existing != null) {
             return existing;
         }
         Country country = findOrCreateCountry("Nederland", "L528");
-        Province p = new Province(name, code, country);
-        provinces.add(p);
-        provinceByCode.put(code, p);
+        Province p = new Province(name, code, country, dictionary);
+        regions.add(p);
         return p;
     }
 
     /**
      * Creates a new Municipality object if it doesn't exist, or returns the existing one.
+     * Every row of a municipality calls this, so the existing one is the common case.
      * @param name Municipality name
      * @param code Municipality code
-     * @param province Parent province
+     * @param province Province of the municipality
+     * @param parentCode Code of the parent region, the province or the kieskring of the municipality
      * @return Municipality object
      */
-    private Municipality findOrCreateMunicipality(String name, String code, Province province) {
-        Municipality m = new Municipality(name, code, province);
-        municipalities.add(m);
+    Municipality findOrCreateMunicipality(String name, String code, Province province, String parentCode) {
+        Municipality existing = regions.getMunicipality(code);
+        if (existing != null) {
+            return existing;
+        }
+        Municipality m = new Municipality(name, code, province, dictionary);
+        regions.add(m, parentCode);
         return m;
     }
 
     // Getters
+
+    /**
+     * Returns the live region registry, which the next import changes; see {@link ElectionSnapshot#getRegions()}.
+     */
+    RegionRegistry getRegions() {
+        return regions;
+    }
+
+    boolean isObjectGraphEnabled() {
+        return objectGraphEnabled;
+    }
+
+    /**
+     * Returns the live country stats, which the next import changes; see {@link #getSnapshot()}.
+     */
     public Map<String, Long> getCountryStats() {
         return countryStats;
     }
@@ -316,6 +862,8 @@ public class CSVImporter {
     /**
      * So you can pick a region (municipality, province, 'Nederland'), etc.
      * fetch the parties, then see seats/candidates/votes.
+     * The map and its parties are live and can be changed, but aren't safe to read while another thread imports;
+     * see {@link #getSnapshot()}, whose parties are frozen copies.
      */
     public Map<String, Map<String, Party>> getRegionPartyMap() {
         return regionPartyMap;
@@ -323,8 +871,98 @@ public class CSVImporter {
 
     /**
      * Returns the global party map, preserving older functionality.
+     * The map and its parties are live and can be changed, but aren't safe to read while another thread imports;
+     * see {@link #getSnapshot()}, whose parties are frozen copies.
      */
     public Map<String, Party> getPartyMap() {
         return globalPartyMap;
     }
+
+    /**
+     * Whether to build the region/party/candidate objects of {@link #getRegionPartyMap()} and {@link #getPartyMap()}.
+     * Enabled by default; call before importing.
+     * @param enabled False to only fill the country stats, the region hierarchy and (if enabled) the vote fact store
+     */
+    public void setObjectGraphEnabled(boolean enabled) {
+        this.objectGraphEnabled = enabled;
+    }
+
+    /**
+     * Whether to also store every vote fact in a columnar {@link VoteFactStore}. Disabled by default; call before importing.
+     * @param enabled True to fill the vote fact store
+     */
+    public void setVoteFactStoreEnabled(boolean enabled) {
+        this.voteFactStore = enabled ? new VoteFactStore(dictionary) : null;
+    }
+
+    /**
+     * Returns the columnar vote fact store, or null if it isn't enabled.
+     */
+    public VoteFactStore getVoteFactStore() {
+        return voteFactStore;
+    }
+
+    /**
+     * Whether to aggregate the votes and statistics along the region hierarchy while importing,
+     * with municipalities ("G..") as the leaves. Disabled by default; call before importing.
+     * @param enabled True to fill the {@link RegionRollups}
+     */
+    public void setRollupsEnabled(boolean enabled) {
+        setRollups(enabled ? new RegionRollups() : null);
+    }
+
+    /**
+     * Aggregates along the region hierarchy into the given (empty) rollups, e.g. with other leaves than municipalities.
+     * Call before importing.
+     * @param rollups Rollups to fill, or null to disable them
+     */
+    public void setRollups(RegionRollups rollups) {
+        this.rollups = rollups;
+    }
+
+    /**
+     * Returns the region rollups, or null if they aren't enabled.
+     */
+    public RegionRollups getRollups() {
+        return rollups;
+    }
+
+    /**
+     * Imports only the rows the filter keeps, in every import mode. The rows are checked before they're split
+     * into columns, so a filtered import of a few regions or parties is much faster than a full one.
+     * Keeps every row by default; call before importing.
+     * @param filter Rows to import, or null to import every row
+     */
+    public void setRowFilter(RowFilter filter) {
+        this.rowFilter = filter != null ? filter : RowFilter.all();
+    }
+
+    /**
+     * Returns the filter of the rows to import, {@link RowFilter#all()} if every row is imported.
+     */
+    public RowFilter getRowFilter() {
+        return rowFilter;
+    }
+
+    /**
+     * Returns the immutable result of the last finished import, which can be read from any thread without locking,
+     * also while this importer imports again. Empty before the first import.
+     */
+    public ElectionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns a number that changes whenever an import starts or ends, e.g. to invalidate a cache of query results.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the dictionary with the distinct text values of the import, e.g. to read its size and hit rate.
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package nl.hva.oop.utils;
+
+/**
+ * A single CSV row as seen by the {@link CSVImporter}, independent of how it was read.
+ * Columns are addressed by index and are always returned trimmed.
+ * Implementations may reuse the same instance for every row, so never keep a reference around.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+interface CSVRow {
+    /**
+     * @return Number of columns in this row
+     */
+    int columnCount();
+
+    /**
+     * @param col Column index
+     * @return The trimmed text of the column
+     */
+    String get(int col);
+
+    /**
+     * Same as {@link #get(int)}, but returns the canonical instance from the dictionary.
+     * @param col Column index
+     * @param dictionary Dictionary of the import
+     * @return The canonical trimmed text of the column
+     */
+    String get(int col, StringDictionary dictionary);
+
+    /**
+     * Returns the dictionary id of the trimmed text of a column.
+     * @param col Column index
+     * @param dictionary Dictionary of the import
+     * @return Id of the column value
+     */
+    int getId(int col, StringDictionary dictionary);
+
+    /**
+     * @param col Column index
+     * @return True if the column is empty after trimming
+     */
+    boolean isEmpty(int col);
+
+    /**
+     * @param col Column index
+     * @return Length of the trimmed column, in the units of the row (chars or UTF-8 bytes)
+     */
+    int length(int col);
+
+    /**
+     * Compares a column with an ASCII value, without creating a String.
+     * @param col Column index
+     * @param value ASCII value to compare with
+     * @return True if the trimmed column equals the value
+     */
+    boolean contentEquals(int col, String value);
+
+    /**
+     * Compares a column with an ASCII value, ignoring case, without creating a String.
+     * @param col Column index
+     * @param value ASCII value to compare with
+     * @return True if the trimmed column equals the value
+     */
+    boolean equalsIgnoreCase(int col, String value);
+
+    /**
+     * @param col Column index
+     * @param c ASCII character
+     * @return True if the trimmed column starts with the given character
+     */
+    boolean startsWith(int col, char c);
+
+    /**
+     * Parses an integer from a column, returning a default value if it isn't a valid integer.
+     * @param col Column index
+     * @param defaultVal Default value
+     * @return Parsed integer or default value
+     */
+    int getInt(int col, int defaultVal);
+
+    /**
+     * Parses a long from a column, returning a default value if it isn't a valid long.
+     * @param col Column index
+     * @param defaultVal Default value
+     * @return Parsed long or default value
+     */
+    long getLong(int col, long defaultVal);
+}
@@ -0,0 +1,60 @@
+package nl.hva.oop.utils;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Receives the rows of a CSV reader. The consumer decides how the lines are split, with the {@link CSVSchema}
+ * it builds from the header. Before a line is split into a {@link CSVRow}, the reader asks whether the consumer
+ * wants it at all, so a rejected line costs no more than the check on its raw bytes or characters.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@FunctionalInterface
+interface CSVRowConsumer extends Consumer<CSVRow> {
+    /**
+     * @return Schema to split the lines with until a header is read, e.g. for a range of a file without the header;
+     * null to split every column
+     */
+    default CSVSchema schema() {
+        return null;
+    }
+
+    /**
+     * Receives the header line instead of a row.
+     * @param buffer Buffer with the UTF-8 bytes of the line
+     * @param lineStart First byte of the line
+     * @param lineEnd End of the line (exclusive), without the newline
+     * @return Schema to split the lines after the header with, null to split every column
+     */
+    default CSVSchema header(ByteBuffer buffer, int lineStart, int lineEnd) {
+        return schema();
+    }
+
+    /**
+     * Receives the header line instead of a row.
+     * @param line Line without the newline
+     * @return Schema to split the lines after the header with, null to split every column
+     */
+    default CSVSchema header(String line) {
+        return schema();
+    }
+
+    /**
+     * @param buffer Buffer with the UTF-8 bytes of the line
+     * @param lineStart First byte of the line
+     * @param lineEnd End of the line (exclusive), without the newline
+     * @return False to skip the line without splitting it
+     */
+    default boolean acceptsLine(ByteBuffer buffer, int lineStart, int lineEnd) {
+        return true;
+    }
+
+    /**
+     * @param line Line without the newline
+     * @return False to skip the line without splitting it
+     */
+    default boolean acceptsLine(String line) {
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package nl.hva.oop.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Where the columns an {@link ElectionRecord} reads are in the rows of one CSV file, built once from its header.
+ * The record reads every column from a fixed slot (the position of the column in the TK2023 export);
+ * the schema maps each column of the file to its slot by the name in the header, so files with the columns
+ * in another order or with extra columns are read correctly. A {@link CSVRow} with a schema only trims and
+ * records the columns that have a slot, and stops looking for delimiters after the last of them.
+ * <p>
+ * Column names are matched ignoring case. A header without the region code, veldType or value column
+ * isn't recognized as a Kiesraad header; the parser then falls back to the positions of the TK2023 export.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class CSVSchema {
+    /**
+     * Column names of the TK2023 export, by slot. The election ("Verkiezing") isn't read, so it has no slot.
+     */
+    private static final String[] NAMES = {"Regio", "RegioCode", "OuderRegioCode", "GrootOuderRegioCode", null,
+            "LijstNummer", "LijstNaam", "KandidaatNummer", "KandidaatInitialen", "KandidaatVoornaam",
+            "KandidaatTussenvoegsel", "KandidaatAchternaam", "KandidaatWoonplaats", "KandidaatGeslacht",
+            "VeldType", "Waarde"};
+
+    /**
+     * Number of slots, i.e. the column count of a complete row for the {@link ElectionRecord}.
+     */
+    static final int SLOTS = NAMES.length;
+
+    // The slots without which a row can't be imported
+    private static final int[] REQUIRED = {ElectionRecord.REGION_CODE, ElectionRecord.FIELD_TYPE, ElectionRecord.VALUE};
+
+    // The longest header that is looked for at the start of a file
+    private static final int MAX_HEADER = 64 * 1024;
+
+    /**
+     * The columns of the TK2023 export, in that order.
+     */
+    static final CSVSchema DEFAULT;
+
+    static {
+        int[] slots = new int[SLOTS];
+        for (int column = 0; column < SLOTS; column++) {
+            slots[column] = NAMES[column] != null ? column : -1;
+        }
+        DEFAULT = new CSVSchema(slots);
+    }
+
+    // Slot per column of the file, -1 for a column that isn't read; ends with the last column that is read
+    private final int[] slotOfColumn;
+    // Column of the file per slot, -1 if the file doesn't have it
+    private final int[] columnOfSlot;
+
+    private CSVSchema(int[] slotOfColumn) {
+        this.slotOfColumn = slotOfColumn;
+        this.columnOfSlot = new int[SLOTS];
+        Arrays.fill(columnOfSlot, -1);
+        for (int column = 0; column < slotOfColumn.length; column++) {
+            if (slotOfColumn[column] >= 0) {
+                columnOfSlot[slotOfColumn[column]] = column;
+            }
+        }
+    }
+
+    /**
+     * Builds the schema of a file from its header row.
+     * @param header Header row, split without a schema
+     * @return The schema, or null if the row isn't a Kiesraad header
+     */
+    static CSVSchema of(CSVRow header) {
+        int[] slots = new int[header.columnCount()];
+        int lastColumn = -1;
+        for (int column = 0; column < slots.length; column++) {
+            slots[column] = slotOf(header.get(column));
+            // A name that occurs twice is read from its first column
+            for (int previous = 0; previous < column && slots[column] >= 0; previous++) {
+                if (slots[previous] == slots[column]) {
+                    slots[column] = -1;
+                }
+            }
+            if (slots[column] >= 0) {
+                lastColumn = column;
+            }
+        }
+        for (int slot : REQUIRED) {
+            if (!contains(slots, slot)) {
+                return null;
+            }
+        }
+        CSVSchema schema = new CSVSchema(Arrays.copyOf(slots, lastColumn + 1));
+        return schema.equals(DEFAULT) ? DEFAULT : schema;
+    }
+
+    /**
+     * Builds the schema from the header line of a memory-mapped file or a block of an archive.
+     * @param buffer Buffer with the line
+     * @param lineStart First byte of the line
+     * @param lineEnd End of the line (exclusive), without the newline
+     * @return The schema, or null if the line isn't a Kiesraad header
+     */
+    static CSVSchema of(ByteBuffer buffer, int lineStart, int lineEnd) {
+        // Skip the byte order mark some editors write at the start of a UTF-8 file
+        if (lineEnd - lineStart >= 3 && buffer.get(lineStart) == (byte) 0xEF
+                && buffer.get(lineStart + 1) == (byte) 0xBB && buffer.get(lineStart + 2) == (byte) 0xBF) {
+            lineStart += 3;
+        }
+        return of(new ByteCSVRow().set(buffer, lineStart, lineEnd));
+    }
+
+    /**
+     * Builds the schema from the header line of a file that is read line by line.
+     * @return The schema, or null if the line isn't a Kiesraad header
+     */
+    static CSVSchema of(String line) {
+        if (!line.isEmpty() && line.charAt(0) == '\uFEFF') {
+            line = line.substring(1);
+        }
+        return of(new LineCSVRow().set(line));
+    }
+
+    /**
+     * Reads the schema from the first line of a file, e.g. before its lines are parsed in ranges that don't
+     * include the header.
+     * @param channel Channel of the CSV file
+     * @return The schema, or {@link #DEFAULT} if the file doesn't start with a Kiesraad header
+     * @throws IOException If the file can't be read
+     */
+    static CSVSchema read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(MAX_HEADER, channel.size()));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        int lineEnd = 0;
+        while (lineEnd < buffer.position() && buffer.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        CSVSchema schema = of(buffer, 0, lineEnd);
+        return schema != null ? schema : DEFAULT;
+    }
+
+    private static int slotOf(String name) {
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (NAMES[slot] != null && NAMES[slot].equalsIgnoreCase(name)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of columns a row needs to have every column of the schema
+     */
+    int columnCount() {
+        return slotOfColumn.length;
+    }
+
+    /**
+     * @param column Column of the file, less than {@link #columnCount()}
+     * @return The slot of the column, or -1 if it isn't read
+     */
+    int slotOf(int column) {
+        return slotOfColumn[column];
+    }
+
+    /**
+     * @param slot Slot of a column, e.g. {@link ElectionRecord#FIELD_TYPE}
+     * @return The column of the file with that slot, or -1 if the file doesn't have it
+     */
+    int columnOf(int slot) {
+        return columnOfSlot[slot];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CSVSchema other && Arrays.equals(slotOfColumn, other.slotOfColumn);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(slotOfColumn);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CSVSchema[");
+        for (int column = 0; column < slotOfColumn.length; column++) {
+            if (slotOfColumn[column] >= 0) {
+                sb.append(column).append('=').append(NAMES[slotOfColumn[column]]).append(' ');
+            }
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,256 @@
+package nl.hva.oop.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Streams the rows of a Kiesraad election results CSV file to an {@link ElectionRecordListener}
+ * without building a model. The columns are found by their names in the header line (see {@link CSVSchema}),
+ * so exports with other or extra columns are read too. Rows without all of those columns are skipped, and so are
+ * the rows a {@link RowFilter} rejects, before they're split into columns.
+ * Every parse is counted and timed in {@link ImportStatistics}, and emits JFR events per phase and per batch of rows.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class ElectionCSVParser {
+    private ElectionCSVParser() {
+    }
+
+    /**
+     * Parses a memory-mapped CSV file, or the CSV file in a .zip or .gz archive, with a dictionary of its own.
+     * @param csvFilePath Path to the CSV file or archive
+     * @param listener Receives every record
+     * @return Statistics of the parse
+     * @throws IOException If the file can't be read
+     */
+    public static ImportStatistics parse(String csvFilePath, ElectionRecordListener listener) throws IOException {
+        return parse(Path.of(csvFilePath), new StringDictionary(), listener);
+    }
+
+    /**
+     * Parses a memory-mapped CSV file, or the CSV file in a .zip or .gz archive.
+     * @param csvFile Path to the CSV file or archive
+     * @param dictionary Dictionary for the text values of the records
+     * @param listener Receives every record
+     * @return Statistics of the parse
+     * @throws IOException If the file can't be read
+     */
+    public static ImportStatistics parse(Path csvFile, StringDictionary dictionary, ElectionRecordListener listener)
+            throws IOException {
+        return parse(csvFile, dictionary, RowFilter.all(), listener);
+    }
+
+    /**
+     * Parses a memory-mapped CSV file, or the CSV file in a .zip or .gz archive, passing only the rows
+     * the filter keeps to the listener.
+     * @param csvFile Path to the CSV file or archive
+     * @param dictionary Dictionary for the text values of the records
+     * @param filter Rows to parse
+     * @param listener Receives every record the filter keeps
+     * @return Statistics of the parse
+     * @throws IOException If the file can't be read
+     */
+    public static ImportStatistics parse(Path csvFile, StringDictionary dictionary, RowFilter filter,
+                                         ElectionRecordListener listener) throws IOException {
+        ImportStatistics statistics = new ImportStatistics(csvFile.toString());
+        parse(csvFile, dictionary, filter, listener, statistics);
+        return statistics.finish();
+    }
+
+    static void parse(Path csvFile, StringDictionary dictionary, RowFilter filter, ElectionRecordListener listener,
+                      ImportStatistics statistics) throws IOException {
+        RowDispatcher dispatcher = new RowDispatcher(dictionary, CSVSchema.DEFAULT, filter, listener, statistics);
+        try {
+            if (ArchiveCSVReader.isArchive(csvFile)) {
+                statistics.addPhaseTime(ImportPhase.DECOMPRESS, ArchiveCSVReader.read(csvFile, dispatcher));
+            } else {
+                MappedCSVReader.read(csvFile, dispatcher);
+            }
+        } finally {
+            dispatcher.end();
+        }
+    }
+
+    /**
+     * Parses a line-aligned byte range of a memory-mapped CSV file.
+     * @param schema Schema of the file, see {@link CSVSchema#read(FileChannel)}; a header in the range replaces it
+     */
+    static void parse(FileChannel channel, long from, long to, boolean skipHeader, CSVSchema schema,
+                      StringDictionary dictionary, RowFilter filter, ElectionRecordListener listener,
+                      ImportStatistics statistics) throws IOException {
+        RowDispatcher dispatcher = new RowDispatcher(dictionary, schema, filter, listener, statistics);
+        try {
+            MappedCSVReader.read(channel, from, to, skipHeader, dispatcher);
+        } finally {
+            dispatcher.end();
+        }
+    }
+
+    /**
+     * Parses a CSV file line by line.
+     */
+    static void parse(BufferedReader reader, StringDictionary dictionary, RowFilter filter,
+                      ElectionRecordListener listener, ImportStatistics statistics) throws IOException {
+        RowDispatcher dispatcher = new RowDispatcher(dictionary, CSVSchema.DEFAULT, filter, listener, statistics);
+        try {
+            LineCSVRow row = new LineCSVRow();
+            row.setSchema(dispatcher.schema());
+            String line;
+            boolean isHeader = true;
+
+            while ((line = reader.readLine()) != null) {
+                if (isHeader) {
+                    isHeader = false;
+                    row.setSchema(dispatcher.header(line));
+                    continue;
+                }
+
+                if (dispatcher.acceptsLine(line)) {
+                    dispatcher.accept(row.set(line));
+                }
+            }
+        } finally {
+            dispatcher.end();
+        }
+    }
+
+    /**
+     * Passes the valid rows of one parse to the listener, counting them and timing the listener
+     * separately from the reading and splitting of the rows. Lines the filter rejects are only counted.
+     * The schema and the matcher of the filter are built once per file, from its header.
+     */
+    private static final class RowDispatcher implements CSVRowConsumer {
+        private final ElectionRecord record;
+        private final RowFilter filter;
+        private CSVSchema schema;
+        private RowFilter.Matcher matcher;
+        private final ElectionRecordListener listener;
+        private final ImportStatistics statistics;
+        private final ImportStatistics.Phase phase;
+        private long handleNanos;
+
+        private ImportBatchEvent batch;
+        private long rows;
+        private long batchRows;
+        private long batchSkippedRows;
+        private long batchFilteredRows;
+
+        RowDispatcher(StringDictionary dictionary, CSVSchema schema, RowFilter filter, ElectionRecordListener listener,
+                      ImportStatistics statistics) {
+            this.record = new ElectionRecord(dictionary);
+            this.filter = filter;
+            this.schema = schema;
+            this.matcher = filter.matcher(schema);
+            this.listener = listener;
+            this.statistics = statistics;
+            this.phase = statistics.begin(ImportPhase.PARSE);
+        }
+
+        @Override
+        public CSVSchema schema() {
+            return schema;
+        }
+
+        @Override
+        public CSVSchema header(ByteBuffer buffer, int lineStart, int lineEnd) {
+            return setSchema(CSVSchema.of(buffer, lineStart, lineEnd));
+        }
+
+        @Override
+        public CSVSchema header(String line) {
+            return setSchema(CSVSchema.of(line));
+        }
+
+        private CSVSchema setSchema(CSVSchema schema) {
+            if (schema == null) {
+                System.err.println("No Kiesraad header in " + statistics.getSource()
+                        + ", reading the columns in the order of TK2023");
+                schema = CSVSchema.DEFAULT;
+            }
+            if (!schema.equals(this.schema)) {
+                this.schema = schema;
+                this.matcher = filter.matcher(schema);
+            }
+            return schema;
+        }
+
+        @Override
+        public boolean acceptsLine(ByteBuffer buffer, int lineStart, int lineEnd) {
+            return matcher.test(buffer, lineStart, lineEnd) || filtered();
+        }
+
+        @Override
+        public boolean acceptsLine(String line) {
+            return matcher.test(line) || filtered();
+        }
+
+        /**
+         * Counts a line the filter rejected.
+         * @return Always false
+         */
+        private boolean filtered() {
+            beginBatch();
+            statistics.countFilteredRow();
+            batchFilteredRows++;
+            endRow();
+            return false;
+        }
+
+        @Override
+        public void accept(CSVRow row) {
+            beginBatch();
+            if (row.columnCount() < CSVSchema.SLOTS) {
+                statistics.countSkippedRow();
+                batchSkippedRows++;
+            } else {
+                record.set(row);
+                statistics.countRow(record.getFieldType());
+                long start = System.nanoTime();
+                listener.onRecord(record);
+                handleNanos += System.nanoTime() - start;
+            }
+            endRow();
+        }
+
+        private void beginBatch() {
+            if (batch == null) {
+                batch = new ImportBatchEvent();
+                batch.begin();
+            }
+        }
+
+        private void endRow() {
+            rows++;
+            if (++batchRows == ImportBatchEvent.ROWS) {
+                commitBatch();
+            }
+        }
+
+        private void commitBatch() {
+            batch.end();
+            if (batch.shouldCommit()) {
+                batch.file = statistics.getSource();
+                batch.firstRow = rows - batchRows;
+                batch.rows = batchRows;
+                batch.skippedRows = batchSkippedRows;
+                batch.filteredRows = batchFilteredRows;
+                batch.commit();
+            }
+            batch = null;
+            batchRows = 0;
+            batchSkippedRows = 0;
+            batchFilteredRows = 0;
+        }
+
+        void end() {
+            if (batch != null) {
+                commitBatch();
+            }
+            statistics.addPhaseTime(ImportPhase.HANDLE, handleNanos);
+            phase.end(handleNanos);
+        }
+    }
+}
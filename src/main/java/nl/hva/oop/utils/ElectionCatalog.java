@@ -0,0 +1,236 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.Country;
+import nl.hva.oop.models.Municipality;
+import nl.hva.oop.models.Party;
+import nl.hva.oop.models.Province;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The imports of several elections (e.g. TK2021, TK2023 and a municipal election) side by side.
+ * Every election has an importer of its own, but all importers share one {@link StringDictionary},
+ * so a party or region name that occurs in several elections is stored once and has the same id in all of them.
+ * The elections are imported concurrently, each into its own {@link VoteFactStore}.
+ * <p>
+ * Cross-election queries join the vote fact stores on the dictionary ids of the region code and the party name,
+ * so a party with another list number in another election is still the same party.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class ElectionCatalog {
+    private final StringDictionary dictionary = new StringDictionary();
+    private final Map<String, CSVImporter> elections = new LinkedHashMap<>();
+
+    /**
+     * The votes of a party in a region in two elections.
+     * @param regionCode Region code, e.g. "G0363"
+     * @param regionName Name of the region, as in the newest of the two elections
+     * @param partyName Name of the party
+     * @param fromVotes Votes in the first election, 0 if the party didn't take part in the region
+     * @param toVotes Votes in the second election, 0 if the party didn't take part in the region
+     */
+    public record VoteChange(String regionCode, String regionName, String partyName, long fromVotes, long toVotes) {
+        /**
+         * @return Votes in the second election minus the votes in the first
+         */
+        public long change() {
+            return toVotes - fromVotes;
+        }
+    }
+
+    /**
+     * Imports one election, replacing an earlier import of the same election.
+     * @param election Name of the election, e.g. "TK2023"
+     * @param csvFilePath Path to the CSV file
+     * @return Statistics of the import, or null if the import failed (the earlier import of the election is kept)
+     */
+    public ImportStatistics importElection(String election, String csvFilePath) {
+        return importElections(Map.of(election, csvFilePath)).get(election);
+    }
+
+    /**
+     * Imports several elections concurrently, one thread per file, replacing earlier imports of the same elections.
+     * An election whose import fails doesn't stop the others: its error is printed, it keeps its earlier import
+     * (if any) and it's left out of the returned statistics.
+     * @param csvFilePaths Path to the CSV file per election name
+     * @return Statistics of the import per successfully imported election, in the order of the given map
+     */
+    public Map<String, ImportStatistics> importElections(Map<String, String> csvFilePaths) {
+        Map<String, ImportStatistics> statistics = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(csvFilePaths.keySet());
+        List<CSVImporter> importers = new ArrayList<>();
+        List<Callable<ImportStatistics>> tasks = new ArrayList<>();
+        for (String name : names) {
+            CSVImporter importer = new CSVImporter(dictionary);
+            importer.setVoteFactStoreEnabled(true);
+            importers.add(importer);
+            String csvFilePath = csvFilePaths.get(name);
+            tasks.add(() -> importer.importCSVMapped(csvFilePath));
+        }
+
+        int parallelism = Math.max(1, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            List<Future<ImportStatistics>> results = pool.invokeAll(tasks);
+            for (int i = 0; i < names.size(); i++) {
+                try {
+                    statistics.put(names.get(i), results.get(i).get());
+                } catch (ExecutionException e) {
+                    System.err.println("Import of election " + names.get(i) + " failed");
+                    e.getCause().printStackTrace();
+                    continue;
+                }
+                synchronized (elections) {
+                    elections.put(names.get(i), importers.get(i));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return statistics;
+    }
+
+    /**
+     * @return Names of the imported elections, in import order
+     */
+    public Set<String> getElections() {
+        synchronized (elections) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(elections.keySet()));
+        }
+    }
+
+    /**
+     * @param election Name of the election
+     * @return The importer with the data of the election, or null if it isn't imported
+     */
+    public CSVImporter getElection(String election) {
+        synchronized (elections) {
+            return elections.get(election);
+        }
+    }
+
+    /**
+     * Returns the dictionary shared by all elections, e.g. to read its size and hit rate.
+     */
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Compares the votes ("LijstAantalStemmen") of every party per region between two elections.
+     * The elections are joined on region code and party name: for every region, the rows of both elections
+     * are read once into arrays indexed by party, instead of looking up every party in every region.
+     * @param fromElection Name of the first election
+     * @param toElection Name of the second election
+     * @param regionCodePrefix Regions to compare, e.g. "G" for the municipalities or "" for all regions
+     * @return The votes per region (by region code) and party (in order of the parties of the first election,
+     * then the new parties), for every party that took part in the region in at least one of the elections
+     * @throws IllegalArgumentException If one of the elections isn't imported
+     */
+    public List<VoteChange> getPartyVoteChanges(String fromElection, String toElection, String regionCodePrefix) {
+        CSVImporter from = require(fromElection);
+        CSVImporter to = require(toElection);
+
+        // Dense index per party over both elections, by the dictionary id of the party name
+        Map<Integer, Integer> partyIndexes = new LinkedHashMap<>();
+        int[] fromParties = partyIndexesByListNumber(from, partyIndexes);
+        int[] toParties = partyIndexesByListNumber(to, partyIndexes);
+        String[] partyNames = new String[partyIndexes.size()];
+        partyIndexes.forEach((nameId, index) -> partyNames[index] = dictionary.get(nameId));
+
+        Map<String, String> regionNames = new HashMap<>();
+        addRegionNames(from, regionCodePrefix, regionNames);
+        addRegionNames(to, regionCodePrefix, regionNames);
+        List<String> regionCodes = new ArrayList<>(regionNames.keySet());
+        Collections.sort(regionCodes);
+
+        int listVotesFieldId = dictionary.find(FieldType.LIJST_AANTAL_STEMMEN.getName());
+        long[] fromVotes = new long[partyNames.length];
+        long[] toVotes = new long[partyNames.length];
+        boolean[] present = new boolean[partyNames.length];
+        List<VoteChange> changes = new ArrayList<>();
+        for (String regionCode : regionCodes) {
+            int regionId = dictionary.find(regionCode);
+            addPartyVotes(from.getVoteFactStore(), regionId, listVotesFieldId, fromParties, fromVotes, present);
+            addPartyVotes(to.getVoteFactStore(), regionId, listVotesFieldId, toParties, toVotes, present);
+            for (int party = 0; party < partyNames.length; party++) {
+                if (present[party]) {
+                    changes.add(new VoteChange(regionCode, regionNames.get(regionCode), partyNames[party],
+                            fromVotes[party], toVotes[party]));
+                    fromVotes[party] = 0;
+                    toVotes[party] = 0;
+                    present[party] = false;
+                }
+            }
+        }
+        return changes;
+    }
+
+    private CSVImporter require(String election) {
+        CSVImporter importer = getElection(election);
+        if (importer == null) {
+            throw new IllegalArgumentException("Election " + election + " isn't imported");
+        }
+        return importer;
+    }
+
+    /**
+     * Adds the parties of an election to the dense party index.
+     * @return Party index per list number of the election, -1 for unused list numbers
+     */
+    private int[] partyIndexesByListNumber(CSVImporter importer, Map<Integer, Integer> partyIndexes) {
+        List<Party> parties = new ArrayList<>(importer.getSnapshot().getPartyMap().values());
+        parties.sort(Comparator.comparingInt(Party::getListNumber));
+        int maxListNumber = parties.isEmpty() ? -1 : parties.get(parties.size() - 1).getListNumber();
+        int[] indexes = new int[maxListNumber + 1];
+        Arrays.fill(indexes, -1);
+        for (Party party : parties) {
+            // The importers interned the party names into the shared dictionary, so a query only looks them up
+            int nameId = dictionary.find(party.getName());
+            if (party.getListNumber() >= 0 && nameId >= 0) {
+                indexes[party.getListNumber()] = partyIndexes.computeIfAbsent(nameId, _ -> partyIndexes.size());
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Adds code -> name of the regions of an election with the given code prefix.
+     */
+    private static void addRegionNames(CSVImporter importer, String prefix, Map<String, String> regionNames) {
+        ElectionSnapshot snapshot = importer.getSnapshot();
+        for (Country country : snapshot.getCountries()) {
+            addRegionName(country.getCode(), country.getName(), prefix, regionNames);
+        }
+        for (Province province : snapshot.getProvinces()) {
+            addRegionName(province.getCode(), province.getName(), prefix, regionNames);
+        }
+        for (Municipality municipality : snapshot.getMunicipalities()) {
+            addRegionName(municipality.getCode(), municipality.getName(), prefix, regionNames);
+        }
+    }
+
+    private static void addRegionName(String code, String name, String prefix, Map<String, String> regionNames) {
+        if (code.startsWith(prefix)) {
+            regionNames.put(code, name);
+        }
+    }
+
+    /**
+     * Adds the party votes of one region of one election to the votes per party index.
+     */
+    private static void addPartyVotes(VoteFactStore store, int regionId, int listVotesFieldId, int[] partyIndexes,
+                                      long[] votes, boolean[] present) {
+        store.forEachRow(regionId, row -> {
+            int listNumber = store.getListNumber(row);
+            if (store.getFieldTypeId(row) == listVotesFieldId && listNumber >= 0 && listNumber < partyIndexes.length
+                    && partyIndexes[listNumber] >= 0) {
+                votes[partyIndexes[listNumber]] += store.getValue(row);
+                present[partyIndexes[listNumber]] = true;
+            }
+        });
+    }
+}
@@ -0,0 +1,194 @@
+package nl.hva.oop.utils;
+
+/**
+ * Typed view of one row of a Kiesraad election results CSV file, as produced by the {@link ElectionCSVParser}.
+ * The parser reuses the same instance for every row, so a record is only valid during
+ * {@link ElectionRecordListener#onRecord(ElectionRecord)}; copy the values you want to keep.
+ * Text values are the canonical instances from the {@link StringDictionary} of the parse,
+ * and numbers are parsed without creating Strings.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class ElectionRecord {
+    // Slots of the columns in a CSVRow: their positions in the TK2023 export, see CSVSchema
+    static final int REGION = 0;
+    static final int REGION_CODE = 1;
+    static final int PARENT_REGION_CODE = 2;
+    static final int GRANDPARENT_REGION_CODE = 3;
+    static final int LIST_NUMBER = 5;
+    static final int PARTY_NAME = 6;
+    static final int CANDIDATE_NUMBER = 7;
+    static final int INITIALS = 8;
+    static final int FIRST_NAME = 9;
+    static final int PREFIX = 10;
+    static final int LAST_NAME = 11;
+    static final int RESIDENCE = 12;
+    static final int SEX = 13;
+    static final int FIELD_TYPE = 14;
+    static final int VALUE = 15;
+
+    private final StringDictionary dictionary;
+    private CSVRow row;
+    // Decoded on the first request for the current row
+    private FieldType fieldType;
+
+    ElectionRecord(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    ElectionRecord set(CSVRow row) {
+        this.row = row;
+        this.fieldType = null;
+        return this;
+    }
+
+    // Region, e.g. "Amsterdam;K9;P27;L528"
+    public String getRegion() {
+        return row.get(REGION, dictionary);
+    }
+
+    public String getRegionCode() {
+        return row.get(REGION_CODE, dictionary);
+    }
+
+    public String getParentRegionCode() {
+        return row.get(PARENT_REGION_CODE, dictionary);
+    }
+
+    public String getGrandParentRegionCode() {
+        return row.get(GRANDPARENT_REGION_CODE, dictionary);
+    }
+
+    /**
+     * @return True if the region name equals the given name, ignoring case
+     */
+    public boolean isRegion(String name) {
+        return row.equalsIgnoreCase(REGION, name);
+    }
+
+    /**
+     * @return True if the region code equals the given code, ignoring case
+     */
+    public boolean isRegionCode(String code) {
+        return row.equalsIgnoreCase(REGION_CODE, code);
+    }
+
+    /**
+     * @return True if the parent region code equals the given code, ignoring case
+     */
+    public boolean isParentRegionCode(String code) {
+        return row.equalsIgnoreCase(PARENT_REGION_CODE, code);
+    }
+
+    /**
+     * @return True if the region code starts with the given character, e.g. 'P' for a province
+     */
+    public boolean regionCodeStartsWith(char c) {
+        return row.startsWith(REGION_CODE, c);
+    }
+
+    int getRegionCodeId() {
+        return row.getId(REGION_CODE, dictionary);
+    }
+
+    // Party
+    /**
+     * @return List number of the party, or -1 if the row has none
+     */
+    public int getListNumber() {
+        return row.getInt(LIST_NUMBER, -1);
+    }
+
+    public boolean hasPartyName() {
+        return !row.isEmpty(PARTY_NAME);
+    }
+
+    public String getPartyName() {
+        return row.get(PARTY_NAME, dictionary);
+    }
+
+    // Candidate
+    /**
+     * @return Candidate number, or -1 if the row has none
+     */
+    public int getCandidateNumber() {
+        return row.getInt(CANDIDATE_NUMBER, -1);
+    }
+
+    public String getInitials() {
+        return row.get(INITIALS, dictionary);
+    }
+
+    public String getFirstName() {
+        return row.get(FIRST_NAME, dictionary);
+    }
+
+    public String getPrefix() {
+        return row.get(PREFIX, dictionary);
+    }
+
+    public String getLastName() {
+        return row.get(LAST_NAME, dictionary);
+    }
+
+    public String getResidence() {
+        return row.get(RESIDENCE, dictionary);
+    }
+
+    public String getSex() {
+        return row.get(SEX, dictionary);
+    }
+
+    // Field type ("veldType") and value
+    public boolean hasFieldType() {
+        return !row.isEmpty(FIELD_TYPE);
+    }
+
+    /**
+     * @return The veldType, decoded without creating a String; {@link FieldType#UNKNOWN} if it's empty or unknown
+     */
+    public FieldType getFieldType() {
+        if (fieldType == null) {
+            fieldType = FieldType.of(row, FIELD_TYPE);
+        }
+        return fieldType;
+    }
+
+    /**
+     * @return The veldType as text, e.g. "KandidaatAantalStemmen" or "Kiesgerechtigden"
+     */
+    public String getFieldTypeName() {
+        return row.get(FIELD_TYPE, dictionary);
+    }
+
+    int getFieldTypeId() {
+        return row.getId(FIELD_TYPE, dictionary);
+    }
+
+    public boolean hasValue() {
+        return !row.isEmpty(VALUE);
+    }
+
+    /**
+     * @param defaultVal Value to return if the value isn't a valid integer
+     * @return The value as an integer
+     */
+    public int getIntValue(int defaultVal) {
+        return row.getInt(VALUE, defaultVal);
+    }
+
+    /**
+     * @param defaultVal Value to return if the value isn't a valid long
+     * @return The value as a long
+     */
+    public long getLongValue(long defaultVal) {
+        return row.getLong(VALUE, defaultVal);
+    }
+
+    /**
+     * @return The value as text, e.g. for a value that isn't numeric
+     */
+    public String getValueText() {
+        return row.get(VALUE);
+    }
+}
@@ -0,0 +1,17 @@
+package nl.hva.oop.utils;
+
+/**
+ * Receives the rows of an election results CSV file as the {@link ElectionCSVParser} produces them.
+ * A listener that only keeps an aggregate (e.g. the votes per party in one province) imports in constant memory;
+ * {@link CSVImporter} is the listener that builds the full region/party/candidate model.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@FunctionalInterface
+public interface ElectionRecordListener {
+    /**
+     * Called for every valid data row, in file order.
+     * @param record The row; only valid during this call
+     */
+    void onRecord(ElectionRecord record);
+}
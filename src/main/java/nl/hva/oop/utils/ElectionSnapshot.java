@@ -0,0 +1,108 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.Country;
+import nl.hva.oop.models.Municipality;
+import nl.hva.oop.models.Party;
+import nl.hva.oop.models.Province;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of a finished import: the country stats, the regions and frozen copies of the parties and
+ * candidates.
+ * {@link CSVImporter} publishes a new snapshot at the end of every import through a volatile field,
+ * so readers on other threads never lock and never see a half-finished import: they keep reading the previous
+ * snapshot until the next one is complete. Unlike {@link ImportSnapshot}, it's never written to disk.
+ * <p>
+ * The parties of a snapshot are {@link Party#frozenCopy() frozen copies} of the importer's parties, which stay
+ * changeable. A party that didn't change since the previous snapshot keeps its copy, so an import that only touches
+ * a few regions only copies their parties.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class ElectionSnapshot {
+    private final long generation;
+    private final Map<String, Long> countryStats;
+    private final Map<String, Map<String, Party>> regionPartyMap;
+    private final Map<String, Party> partyMap;
+    private final RegionRegistry regions;
+
+    /**
+     * Takes frozen copies of the parties and copies the maps into immutable ones.
+     * @param regions Immutable copy of the region registry of the importer
+     */
+    ElectionSnapshot(long generation, Map<String, Long> countryStats, Map<String, Map<String, Party>> regionPartyMap,
+                     Map<String, Party> partyMap, RegionRegistry regions) {
+        this.generation = generation;
+        // Keeps the order of the CSV file, which Map.copyOf wouldn't
+        this.countryStats = Collections.unmodifiableMap(new LinkedHashMap<>(countryStats));
+        Map<String, Map<String, Party>> partiesByRegion = new HashMap<>(regionPartyMap.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Map<String, Party>> region : regionPartyMap.entrySet()) {
+            partiesByRegion.put(region.getKey(), freeze(region.getValue()));
+        }
+        this.regionPartyMap = Map.copyOf(partiesByRegion);
+        this.partyMap = freeze(partyMap);
+        this.regions = regions;
+    }
+
+    private static Map<String, Party> freeze(Map<String, Party> parties) {
+        Map<String, Party> copies = new HashMap<>(parties.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Party> party : parties.entrySet()) {
+            copies.put(party.getKey(), party.getValue().frozenCopy());
+        }
+        return Map.copyOf(copies);
+    }
+
+    /**
+     * Returns the generation of the importer when the snapshot was published, see {@link CSVImporter#getGeneration()}.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return Country stats in the order of the CSV file, e.g. "Opkomst" -> 10432726
+     */
+    public Map<String, Long> getCountryStats() {
+        return countryStats;
+    }
+
+    /**
+     * @return Region name -> (party name -> party), like {@link CSVImporter#getRegionPartyMap()}
+     */
+    public Map<String, Map<String, Party>> getRegionPartyMap() {
+        return regionPartyMap;
+    }
+
+    /**
+     * @return Party name -> party over the whole country, like {@link CSVImporter#getPartyMap()}
+     */
+    public Map<String, Party> getPartyMap() {
+        return partyMap;
+    }
+
+    /**
+     * @return The regions by code, with their parents and children
+     */
+    public RegionRegistry getRegions() {
+        return regions;
+    }
+
+    public List<Country> getCountries() {
+        return regions.getCountries();
+    }
+
+    public List<Province> getProvinces() {
+        return regions.getProvinces();
+    }
+
+    /**
+     * @return Municipalities in order of appearance, one per region code
+     */
+    public List<Municipality> getMunicipalities() {
+        return regions.getMunicipalities();
+    }
+}
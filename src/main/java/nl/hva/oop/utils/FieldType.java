@@ -0,0 +1,90 @@
+package nl.hva.oop.utils;
+
+import java.util.Arrays;
+
+/**
+ * The values of the "VeldType" column of a Kiesraad election results CSV file.
+ * A row's veldType is decoded once, on the characters or bytes of the column, so the importer can dispatch on an enum
+ * instead of comparing Strings.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public enum FieldType {
+    // Statistics of a region, CSVImporter keeps them for the country
+    KIESGERECHTIGDEN("Kiesgerechtigden", true),
+    OPKOMST("Opkomst", true),
+    AANTAL_GELDIGE_STEMMEN("AantalGeldigeStemmen", true),
+    AANTAL_BLANCO_STEMMEN("AantalBlancoStemmen", true),
+    AANTAL_ONGELDIGE_STEMMEN("AantalOngeldigeStemmen", true),
+
+    // Party and candidate results
+    LIJST_AANTAL_STEMMEN("LijstAantalStemmen", false),
+    LIJST_AANTAL_ZETELS("LijstAantalZetels", false),
+    KANDIDAAT_AANTAL_STEMMEN("KandidaatAantalStemmen", false),
+    KANDIDAAT_GEKOZEN("KandidaatGekozen", false),
+
+    /**
+     * An empty veldType, or one the importer doesn't know.
+     */
+    UNKNOWN("", false);
+
+    private static final FieldType[] KNOWN = Arrays.copyOf(values(), values().length - 1);
+
+    private final String name;
+    private final String label;
+    private final boolean countryStat;
+
+    FieldType(String name, boolean countryStat) {
+        this.name = name;
+        this.label = FieldNameFormatter.toHumanReadable(name);
+        this.countryStat = countryStat;
+    }
+
+    /**
+     * @return The veldType as it appears in the CSV file, e.g. "KandidaatAantalStemmen"
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The human-readable name, as {@link FieldNameFormatter#toHumanReadable(String)} formats it
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return True if this is one of the country statistics the importer stores, e.g. "Opkomst"
+     */
+    public boolean isCountryStat() {
+        return countryStat;
+    }
+
+    /**
+     * @param name The veldType as text
+     * @return The field type, or {@link #UNKNOWN}
+     */
+    public static FieldType of(String name) {
+        for (FieldType type : KNOWN) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Decodes the veldType column of a row without creating a String.
+     * Most field types are already rejected on their length.
+     */
+    static FieldType of(CSVRow row, int col) {
+        int length = row.length(col);
+        for (FieldType type : KNOWN) {
+            if (type.name.length() == length && row.contentEquals(col, type.name)) {
+                return type;
+            }
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,40 @@
+package nl.hva.oop.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a batch of rows handled by the {@link ElectionCSVParser}, so a recording shows
+ * the throughput during an import and which part of a file is slow.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@Name("nl.hva.oop.ImportBatch")
+@Label("Import Batch")
+@Category({"DHRER importer"})
+@Description("A batch of rows of a CSV import")
+final class ImportBatchEvent extends jdk.jfr.Event {
+    /**
+     * Number of rows per batch.
+     */
+    static final int ROWS = 10_000;
+
+    @Label("File")
+    String file;
+
+    @Label("First Row")
+    @Description("Number of the first row of the batch within the parsed range")
+    long firstRow;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Skipped Rows")
+    long skippedRows;
+
+    @Label("Filtered Rows")
+    @Description("Rows rejected by the RowFilter of the import")
+    long filteredRows;
+}
@@ -0,0 +1,49 @@
+package nl.hva.oop.utils;
+
+/**
+ * The phases of an import that {@link ImportStatistics} times separately.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public enum ImportPhase {
+    /**
+     * Reading the file and finding the columns of every row (I/O and splitting).
+     */
+    PARSE("parse"),
+
+    /**
+     * Reading and inflating a .zip or .gz file, on a thread of its own while PARSE splits the inflated lines;
+     * time PARSE spends waiting for inflated lines counts as PARSE.
+     */
+    DECOMPRESS("decompress"),
+
+    /**
+     * Updating the model with the rows: regions, parties, candidates and vote facts.
+     */
+    HANDLE("handle"),
+
+    /**
+     * Merging the partial importers of a parallel import, or the spilled runs of a {@link BoundedRollupImporter}.
+     */
+    MERGE("merge"),
+
+    /**
+     * Loading a snapshot of an earlier import.
+     */
+    SNAPSHOT_LOAD("snapshot load"),
+
+    /**
+     * Writing a snapshot after an import.
+     */
+    SNAPSHOT_WRITE("snapshot write");
+
+    private final String label;
+
+    ImportPhase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,32 @@
+package nl.hva.oop.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one {@link ImportPhase} of an import, e.g. the parse of a file or of one chunk of a parallel import.
+ * Recorded with {@code -XX:StartFlightRecording}; costs next to nothing when no recording is running.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+@Name("nl.hva.oop.ImportPhase")
+@Label("Import Phase")
+@Category({"DHRER importer"})
+@Description("A phase of a CSV import")
+final class ImportPhaseEvent extends jdk.jfr.Event {
+    @Label("File")
+    String file;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+}
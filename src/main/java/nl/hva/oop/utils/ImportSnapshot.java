@@ -0,0 +1,391 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.*;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact binary snapshot of an imported model, so later runs can skip parsing the CSV file.
+ * A snapshot starts with the size, modification time and CRC32C of the source CSV file,
+ * and is only loaded while all three still match.
+ * All text is stored once in a string table; the rest of the snapshot refers to it by index.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class ImportSnapshot {
+    private static final int MAGIC = 0x44485253; // "DHRS"
+    private static final int VERSION = 4;
+
+    private static final int FLAG_OBJECT_GRAPH = 1;
+    private static final int FLAG_VOTE_FACTS = 2;
+    private static final int FLAG_ROLLUPS = 4;
+
+    // Flags of a candidate of a party
+    private static final int CANDIDATE_CHOSEN = 1;
+    private static final int CANDIDATE_SHARED = 2;
+
+    private ImportSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the importer. The snapshot is written to a temporary file first
+     * and then moved into place, so a reader never sees half a snapshot.
+     *
+     * @param importer Importer to take the snapshot of
+     * @param snapshot Path of the snapshot file
+     * @param source CSV file the importer imported
+     * @throws IOException If the snapshot can't be written
+     */
+    static void write(CSVImporter importer, Path snapshot, Path source) throws IOException {
+        // Before anything is written, so a missing or unreadable source leaves no file behind
+        long size = Files.size(source);
+        long lastModified = Files.getLastModifiedTime(source).toMillis();
+        long checksum = checksum(source);
+
+        // The body refers to strings by index, so it's written first and the string table is put in front of it
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            writeBody(importer, out, strings);
+        }
+
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try {
+            writeFile(importer, temp, size, lastModified, checksum, strings, body);
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private static void writeFile(CSVImporter importer, Path file, long size, long lastModified, long checksum,
+                                  Map<String, Integer> strings, ByteArrayOutputStream body) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(flags(importer));
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeLong(checksum);
+
+            out.writeInt(strings.size());
+            for (String value : strings.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            body.writeTo(out);
+        }
+    }
+
+    /**
+     * Loads a snapshot into an empty importer, if it's still valid for the source file.
+     *
+     * @param importer Empty importer to load into, configured the same way as the importer that wrote the snapshot
+     * @param snapshot Path of the snapshot file
+     * @param source CSV file the snapshot was taken of
+     * @return True if the snapshot was loaded, false if it's missing or outdated
+     * @throws IOException If the snapshot can't be read
+     */
+    static boolean load(CSVImporter importer, Path snapshot, Path source) throws IOException {
+        if (!Files.exists(snapshot) || !Files.exists(source)) {
+            return false;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.remaining() < 36 || in.getInt() != MAGIC || in.getInt() != VERSION || in.getInt() != flags(importer)) {
+                return false;
+            }
+            if (in.getLong() != Files.size(source)
+                    || in.getLong() != Files.getLastModifiedTime(source).toMillis()
+                    || in.getLong() != checksum(source)) {
+                return false;
+            }
+
+            StringDictionary dictionary = importer.getDictionary();
+            String[] strings = new String[in.getInt()];
+            byte[] bytes = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.getInt();
+                if (bytes.length < length) {
+                    bytes = new byte[length * 2];
+                }
+                in.get(bytes, 0, length);
+                strings[i] = dictionary.intern(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            }
+            readBody(importer, in, strings);
+        }
+        return true;
+    }
+
+    private static int flags(CSVImporter importer) {
+        return (importer.isObjectGraphEnabled() ? FLAG_OBJECT_GRAPH : 0)
+                | (importer.getVoteFactStore() != null ? FLAG_VOTE_FACTS : 0)
+                | (importer.getRollups() != null ? FLAG_ROLLUPS : 0);
+    }
+
+    /**
+     * @return CRC32C of the whole file, computed on the memory-mapped file
+     */
+    static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(Integer.MAX_VALUE, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static void writeBody(CSVImporter importer, DataOutputStream out, Map<String, Integer> strings)
+            throws IOException {
+        Map<String, Long> countryStats = importer.getCountryStats();
+        out.writeInt(countryStats.size());
+        for (Map.Entry<String, Long> stat : countryStats.entrySet()) {
+            writeString(out, strings, stat.getKey());
+            out.writeLong(stat.getValue());
+        }
+
+        RegionRegistry regions = importer.getRegions();
+        List<Country> countries = regions.getCountries();
+        out.writeInt(countries.size());
+        for (Country country : countries) {
+            writeString(out, strings, country.getName());
+            writeString(out, strings, country.getCode());
+        }
+        List<Province> provinces = regions.getProvinces();
+        out.writeInt(provinces.size());
+        for (Province province : provinces) {
+            writeString(out, strings, province.getName());
+            writeString(out, strings, province.getCode());
+        }
+        List<Municipality> municipalities = regions.getMunicipalities();
+        out.writeInt(municipalities.size());
+        for (Municipality municipality : municipalities) {
+            writeString(out, strings, municipality.getName());
+            writeString(out, strings, municipality.getCode());
+            writeString(out, strings, municipality.getProvince().getCode());
+            // The kieskring of a municipality, or its province
+            writeString(out, strings, regions.getParent(municipality.getCode()));
+        }
+
+        Map<String, Party> globalParties = importer.getPartyMap();
+        writeParties(out, strings, globalParties, null);
+        Map<String, Map<String, Party>> regionPartyMap = importer.getRegionPartyMap();
+        out.writeInt(regionPartyMap.size());
+        for (Map.Entry<String, Map<String, Party>> region : regionPartyMap.entrySet()) {
+            writeString(out, strings, region.getKey());
+            writeParties(out, strings, region.getValue(), globalParties);
+        }
+
+        if (importer.getRollups() != null) {
+            writeRollups(out, strings, importer.getRollups());
+        }
+
+        VoteFactStore store = importer.getVoteFactStore();
+        if (store != null) {
+            StringDictionary dictionary = importer.getDictionary();
+            out.writeInt(store.size());
+            for (int row = 0; row < store.size(); row++) {
+                writeString(out, strings, dictionary.get(store.getRegionId(row)));
+                out.writeInt(store.getListNumber(row));
+                out.writeInt(store.getCandidateNumber(row));
+                writeString(out, strings, dictionary.get(store.getFieldTypeId(row)));
+                out.writeInt(store.getValue(row));
+            }
+        }
+    }
+
+    /**
+     * Writes the reported totals of every region; loading adds them again, which rebuilds the rolled-up totals.
+     */
+    private static void writeRollups(DataOutputStream out, Map<String, Integer> strings, RegionRollups rollups)
+            throws IOException {
+        writeString(out, strings, rollups.getLeafPrefix());
+        out.writeInt(rollups.getRegionCodes().size());
+        for (String code : rollups.getRegionCodes()) {
+            List<String> ancestors = rollups.getAncestorCodes(code);
+            writeString(out, strings, code);
+            writeString(out, strings, !ancestors.isEmpty() ? ancestors.get(0) : "");
+            writeString(out, strings, ancestors.size() > 1 ? ancestors.get(1) : "");
+
+            RegionTotals totals = rollups.getReportedTotals(code);
+            out.writeBoolean(!totals.isEmpty());
+            if (totals.isEmpty()) {
+                continue;
+            }
+            for (FieldType fieldType : FieldType.values()) {
+                if (fieldType.isCountryStat()) {
+                    out.writeLong(totals.getStat(fieldType));
+                }
+            }
+            out.writeInt(totals.maxListNumber());
+            for (int list = 0; list <= totals.maxListNumber(); list++) {
+                out.writeLong(totals.getPartyVotes(list));
+                out.writeInt(totals.maxCandidateNumber(list));
+                for (int candidate = 0; candidate <= totals.maxCandidateNumber(list); candidate++) {
+                    out.writeLong(totals.getCandidateVotes(list, candidate));
+                }
+            }
+        }
+    }
+
+    private static void readRollups(MappedByteBuffer in, String[] strings, RegionRollups rollups) throws IOException {
+        if (!strings[in.getInt()].equals(rollups.getLeafPrefix())) {
+            throw new IOException("Snapshot has rollups with another leaf prefix");
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            String code = strings[in.getInt()];
+            String parentCode = strings[in.getInt()];
+            String grandParentCode = strings[in.getInt()];
+            rollups.addRegion(code, parentCode, grandParentCode);
+            if (in.get() == 0) {
+                continue;
+            }
+            for (FieldType fieldType : FieldType.values()) {
+                if (fieldType.isCountryStat()) {
+                    rollups.add(code, parentCode, grandParentCode, fieldType, -1, -1, in.getLong());
+                }
+            }
+            for (int list = 0, maxList = in.getInt(); list <= maxList; list++) {
+                rollups.add(code, parentCode, grandParentCode, FieldType.LIJST_AANTAL_STEMMEN, list, -1, in.getLong());
+                for (int candidate = 0, maxCandidate = in.getInt(); candidate <= maxCandidate; candidate++) {
+                    rollups.add(code, parentCode, grandParentCode, FieldType.KANDIDAAT_AANTAL_STEMMEN, list, candidate,
+                            in.getLong());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes parties with the chosen flag and the votes of their candidates. Who a candidate is, is only written
+     * if it's not the identity of the same candidate in the global party, which is the case for (almost) every
+     * candidate of a region.
+     * @param globalParties Parties whose candidate identities are shared, or null while writing the global parties
+     */
+    private static void writeParties(DataOutputStream out, Map<String, Integer> strings, Map<String, Party> parties,
+                                     Map<String, Party> globalParties) throws IOException {
+        out.writeInt(parties.size());
+        for (Party party : parties.values()) {
+            out.writeInt(party.getListNumber());
+            writeString(out, strings, party.getName());
+            out.writeInt(party.getSeats());
+            Party globalParty = globalParties != null ? globalParties.get(party.getName()) : null;
+
+            List<Candidate> candidates = party.getCandidates();
+            out.writeInt(candidates.size());
+            for (Candidate c : candidates) {
+                boolean shared = globalParty != null
+                        && globalParty.getIdentity(c.getCandidateNumber()) == c.getIdentity();
+                out.writeInt(c.getCandidateNumber());
+                out.writeByte((c.isChosen() ? CANDIDATE_CHOSEN : 0) | (shared ? CANDIDATE_SHARED : 0));
+                out.writeInt(c.getTotalVotes());
+                if (!shared) {
+                    writeString(out, strings, c.getInitials());
+                    writeString(out, strings, c.getFirstName());
+                    writeString(out, strings, c.getPrefix());
+                    writeString(out, strings, c.getLastName());
+                    writeString(out, strings, c.getResidence());
+                    writeString(out, strings, c.getSex());
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, Map<String, Integer> strings, String value)
+            throws IOException {
+        out.writeInt(strings.computeIfAbsent(value, _ -> strings.size()));
+    }
+
+    private static void readBody(CSVImporter importer, MappedByteBuffer in, String[] strings) throws IOException {
+        Map<String, Long> countryStats = importer.getCountryStats();
+        for (int i = in.getInt(); i > 0; i--) {
+            String key = strings[in.getInt()];
+            countryStats.put(key, in.getLong());
+        }
+
+        for (int i = in.getInt(); i > 0; i--) {
+            importer.findOrCreateCountry(strings[in.getInt()], strings[in.getInt()]);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            importer.findOrCreateProvince(strings[in.getInt()], strings[in.getInt()]);
+        }
+        for (int i = in.getInt(); i > 0; i--) {
+            String name = strings[in.getInt()];
+            String code = strings[in.getInt()];
+            Province province = importer.getRegions().getProvince(strings[in.getInt()]);
+            importer.findOrCreateMunicipality(name, code, province, strings[in.getInt()]);
+        }
+
+        readParties(in, strings, importer.getPartyMap(), null);
+        Map<String, Map<String, Party>> regionPartyMap = importer.getRegionPartyMap();
+        for (int i = in.getInt(); i > 0; i--) {
+            Map<String, Party> parties = regionPartyMap.computeIfAbsent(strings[in.getInt()], _ -> new HashMap<>());
+            readParties(in, strings, parties, importer.getPartyMap());
+        }
+
+        if (importer.getRollups() != null) {
+            readRollups(in, strings, importer.getRollups());
+        }
+
+        VoteFactStore store = importer.getVoteFactStore();
+        if (store != null) {
+            StringDictionary dictionary = importer.getDictionary();
+            // Dictionary ids of a (shared) dictionary may differ from the ids at the time of writing
+            int[] ids = new int[strings.length];
+            Arrays.fill(ids, -1);
+            for (int i = in.getInt(); i > 0; i--) {
+                int regionId = id(dictionary, strings, ids, in.getInt());
+                int listNumber = in.getInt();
+                int candidateNumber = in.getInt();
+                int fieldTypeId = id(dictionary, strings, ids, in.getInt());
+                store.add(regionId, listNumber, candidateNumber, fieldTypeId, in.getInt());
+            }
+        }
+    }
+
+    private static int id(StringDictionary dictionary, String[] strings, int[] ids, int index) {
+        if (ids[index] < 0) {
+            ids[index] = dictionary.id(strings[index]);
+        }
+        return ids[index];
+    }
+
+    /**
+     * @param globalParties Parties to share the candidate identities of, or null while reading the global parties
+     */
+    private static void readParties(MappedByteBuffer in, String[] strings, Map<String, Party> parties,
+                                    Map<String, Party> globalParties) {
+        for (int i = in.getInt(); i > 0; i--) {
+            int listNumber = in.getInt();
+            Party party = new Party(listNumber, strings[in.getInt()]);
+            party.setSeats(in.getInt());
+            parties.put(party.getName(), party);
+            Party globalParty = globalParties != null ? globalParties.get(party.getName()) : null;
+
+            for (int j = in.getInt(); j > 0; j--) {
+                int number = in.getInt();
+                int flags = in.get();
+                int votes = in.getInt();
+                // Strings are already canonical, they were interned while reading the string table
+                CandidateIdentity identity = (flags & CANDIDATE_SHARED) != 0 && globalParty != null
+                        ? globalParty.getIdentity(number)
+                        : new CandidateIdentity(number, strings[in.getInt()], strings[in.getInt()],
+                        strings[in.getInt()], strings[in.getInt()], strings[in.getInt()], strings[in.getInt()]);
+                party.addCandidate(identity);
+                party.setChosen(number, (flags & CANDIDATE_CHOSEN) != 0);
+                party.setTotalVotes(number, votes);
+            }
+        }
+    }
+}
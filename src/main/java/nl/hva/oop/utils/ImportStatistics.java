@@ -0,0 +1,235 @@
+package nl.hva.oop.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statistics of one import, returned by the import methods of {@link CSVImporter}:
+ * the rows read, skipped, filtered and handled per {@link FieldType}, the time per {@link ImportPhase},
+ * and the bytes allocated per thread.
+ * <p>
+ * The phase times of a parallel import are the sums over all threads, so together they can exceed
+ * the wall-clock {@link #getTotalNanos() total time}. Allocated bytes are only known on JVMs
+ * that support {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class ImportStatistics {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()
+                    ? threads : null;
+
+    private final String source;
+    private final long startNanos = System.nanoTime();
+    private long totalNanos = -1;
+
+    private long rowsRead;
+    private long rowsSkipped;
+    private long rowsFiltered;
+    private final long[] rowsPerFieldType = new long[FieldType.values().length];
+    private final Map<ImportPhase, Long> phaseNanos = new EnumMap<>(ImportPhase.class);
+    private final Map<String, Long> allocatedBytes = new LinkedHashMap<>();
+
+    /**
+     * @param source File that is imported
+     */
+    ImportStatistics(String source) {
+        this.source = source;
+    }
+
+    /**
+     * A running phase; {@link #end(long)} records its time and allocations and commits its JFR event.
+     */
+    final class Phase {
+        private final ImportPhase phase;
+        private final ImportPhaseEvent event = new ImportPhaseEvent();
+        private final long start;
+        private final long allocatedStart;
+
+        private Phase(ImportPhase phase) {
+            this.phase = phase;
+            event.begin();
+            start = System.nanoTime();
+            allocatedStart = currentThreadAllocatedBytes();
+        }
+
+        /**
+         * Ends the phase.
+         * @param excludedNanos Time within the phase that belongs to another phase, e.g. HANDLE within PARSE
+         */
+        void end(long excludedNanos) {
+            addPhaseTime(phase, System.nanoTime() - start - excludedNanos);
+            long allocated = currentThreadAllocatedBytes() - allocatedStart;
+            if (THREADS != null) {
+                allocatedBytes.merge(Thread.currentThread().getName(), allocated, Long::sum);
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = source;
+                event.phase = phase.getLabel();
+                event.rows = rowsRead;
+                event.allocated = allocated;
+                event.commit();
+            }
+        }
+    }
+
+    Phase begin(ImportPhase phase) {
+        return new Phase(phase);
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    void countRow(FieldType fieldType) {
+        rowsRead++;
+        rowsPerFieldType[fieldType.ordinal()]++;
+    }
+
+    void countSkippedRow() {
+        rowsRead++;
+        rowsSkipped++;
+    }
+
+    void countFilteredRow() {
+        rowsRead++;
+        rowsFiltered++;
+    }
+
+    void addPhaseTime(ImportPhase phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Adds the statistics of a part of the import, e.g. of a chunk of a parallel import.
+     */
+    void add(ImportStatistics other) {
+        rowsRead += other.rowsRead;
+        rowsSkipped += other.rowsSkipped;
+        rowsFiltered += other.rowsFiltered;
+        for (int i = 0; i < rowsPerFieldType.length; i++) {
+            rowsPerFieldType[i] += other.rowsPerFieldType[i];
+        }
+        other.phaseNanos.forEach(this::addPhaseTime);
+        other.allocatedBytes.forEach((thread, bytes) -> allocatedBytes.merge(thread, bytes, Long::sum));
+    }
+
+    /**
+     * Stops the clock of the total time.
+     * @return This object
+     */
+    ImportStatistics finish() {
+        totalNanos = System.nanoTime() - startNanos;
+        return this;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return Number of data rows read, including the skipped and the filtered rows
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * @return Number of rows skipped because they have too few columns
+     */
+    public long getRowsSkipped() {
+        return rowsSkipped;
+    }
+
+    /**
+     * @return Number of rows the {@link RowFilter} of the import rejected without splitting them
+     */
+    public long getRowsFiltered() {
+        return rowsFiltered;
+    }
+
+    /**
+     * @return Number of handled rows with the given veldType
+     */
+    public long getRows(FieldType fieldType) {
+        return rowsPerFieldType[fieldType.ordinal()];
+    }
+
+    /**
+     * @return Time spent in the phase in nanoseconds, 0 if the import didn't have the phase
+     */
+    public long getPhaseNanos(ImportPhase phase) {
+        return phaseNanos.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return Wall-clock time of the whole import in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos >= 0 ? totalNanos : System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return Rows read per second of wall-clock time
+     */
+    public double getRowsPerSecond() {
+        return rowsRead / (getTotalNanos() / 1e9);
+    }
+
+    /**
+     * @return Bytes allocated per thread (by thread name), empty if the JVM can't measure it
+     */
+    public Map<String, Long> getAllocatedBytes() {
+        return Map.copyOf(allocatedBytes);
+    }
+
+    /**
+     * @return Bytes allocated by all threads of the import, or -1 if the JVM can't measure it
+     */
+    public long getTotalAllocatedBytes() {
+        if (THREADS == null) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : allocatedBytes.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Import of ").append(source).append(": ")
+                .append(rowsRead).append(" rows read, ").append(rowsSkipped).append(" skipped, ");
+        if (rowsFiltered > 0) {
+            sb.append(rowsFiltered).append(" filtered, ");
+        }
+        sb.append(getTotalNanos() / 1_000_000).append(" ms, ")
+                .append(String.format("%.0f", getRowsPerSecond())).append(" rows/s");
+
+        sb.append("\n  Rows per veldType:");
+        for (FieldType fieldType : FieldType.values()) {
+            if (getRows(fieldType) > 0) {
+                sb.append(' ').append(fieldType == FieldType.UNKNOWN ? "(other)" : fieldType.getName())
+                        .append('=').append(getRows(fieldType));
+            }
+        }
+
+        sb.append("\n  Time per phase (ms):");
+        phaseNanos.forEach((phase, nanos) -> sb.append(' ').append(phase.getLabel()).append('=').append(nanos / 1_000_000));
+
+        if (THREADS != null) {
+            sb.append("\n  Allocated (KB): ").append(getTotalAllocatedBytes() >> 10);
+            if (allocatedBytes.size() > 1) {
+                allocatedBytes.forEach((thread, bytes) -> sb.append(' ').append(thread).append('=').append(bytes >> 10));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,198 @@
+package nl.hva.oop.utils;
+
+import java.util.Arrays;
+
+/**
+ * {@link CSVRow} over a line that was read with a {@link java.io.BufferedReader}.
+ * Only the column boundaries are located when a line is set, instead of splitting it into a String per column;
+ * numbers are parsed and values are compared on the characters of the line, Strings are only created for text
+ * that is actually requested.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class LineCSVRow implements CSVRow {
+    private static final char SEPARATOR = ';';
+
+    private String line;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+    // Slot per column of the schema, null to split every column
+    private int[] slots;
+
+    /**
+     * Reads the next lines with the schema of their file, like {@link ByteCSVRow#setSchema(CSVSchema)} does.
+     * @param schema Schema of the lines, or null to split every column of a line
+     */
+    void setSchema(CSVSchema schema) {
+        if (schema == null) {
+            slots = null;
+            return;
+        }
+        slots = new int[schema.columnCount()];
+        for (int column = 0; column < slots.length; column++) {
+            slots[column] = schema.slotOf(column);
+        }
+        // A slot the file doesn't have is always empty
+        starts = new int[CSVSchema.SLOTS];
+        ends = new int[CSVSchema.SLOTS];
+    }
+
+    /**
+     * Points this row at a line, finding the column boundaries and trimming them like {@link String#trim()} does.
+     */
+    LineCSVRow set(String line) {
+        this.line = line;
+        if (slots != null) {
+            return set(line, slots);
+        }
+        count = 0;
+        int start = 0;
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == SEPARATOR) {
+                addColumn(start, i);
+                start = i + 1;
+            }
+        }
+        addColumn(start, length);
+        return this;
+    }
+
+    private LineCSVRow set(String line, int[] slots) {
+        int lastColumn = slots.length - 1;
+        int column = 0;
+        int start = 0;
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) == SEPARATOR) {
+                int slot = slots[column];
+                if (slot >= 0) {
+                    setColumn(slot, start, i);
+                }
+                if (column == lastColumn) {
+                    count = CSVSchema.SLOTS;
+                    return this;
+                }
+                column++;
+                start = i + 1;
+            }
+        }
+        // The last column of the line
+        if (column == lastColumn) {
+            int slot = slots[column];
+            if (slot >= 0) {
+                setColumn(slot, start, length);
+            }
+            count = CSVSchema.SLOTS;
+        } else {
+            count = 0;
+        }
+        return this;
+    }
+
+    private void addColumn(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        setColumn(count, start, end);
+        count++;
+    }
+
+    private void setColumn(int col, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        starts[col] = start;
+        ends[col] = end;
+    }
+
+    @Override
+    public int columnCount() {
+        return count;
+    }
+
+    @Override
+    public String get(int col) {
+        return line.substring(starts[col], ends[col]);
+    }
+
+    @Override
+    public String get(int col, StringDictionary dictionary) {
+        return dictionary.intern(get(col));
+    }
+
+    @Override
+    public int getId(int col, StringDictionary dictionary) {
+        return dictionary.id(get(col));
+    }
+
+    @Override
+    public boolean isEmpty(int col) {
+        return starts[col] == ends[col];
+    }
+
+    @Override
+    public int length(int col) {
+        return ends[col] - starts[col];
+    }
+
+    @Override
+    public boolean contentEquals(int col, String value) {
+        return ends[col] - starts[col] == value.length() && line.startsWith(value, starts[col]);
+    }
+
+    @Override
+    public boolean equalsIgnoreCase(int col, String value) {
+        return ends[col] - starts[col] == value.length()
+                && line.regionMatches(true, starts[col], value, 0, value.length());
+    }
+
+    @Override
+    public boolean startsWith(int col, char c) {
+        return starts[col] < ends[col] && line.charAt(starts[col]) == c;
+    }
+
+    @Override
+    public int getInt(int col, int defaultVal) {
+        long value = getLong(col, Long.MIN_VALUE);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return defaultVal;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Same rules as {@link Long#parseLong(String)} for ASCII digits, but returns the default value instead of throwing.
+     * Long.MIN_VALUE itself is reported as invalid, which is fine for election counts.
+     */
+    @Override
+    public long getLong(int col, long defaultVal) {
+        int i = starts[col];
+        int end = ends[col];
+        if (i == end) {
+            return defaultVal;
+        }
+        boolean negative = false;
+        char first = line.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                return defaultVal;
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                return defaultVal;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,107 @@
+package nl.hva.oop.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a CSV file through {@link FileChannel#map}, finding the line and column delimiters on the raw bytes.
+ * Files larger than one mapping window are mapped window by window, each window ending on a newline.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class MappedCSVReader {
+    // A single MappedByteBuffer is indexed by int, so one window can never exceed 2 GB
+    private static final long MAX_WINDOW = 1L << 30;
+
+    private MappedCSVReader() {
+    }
+
+    /**
+     * Reads every line of the file, handing the header to the consumer and each data line it
+     * {@link CSVRowConsumer#acceptsLine accepts} to it as a {@link CSVRow}.
+     * The same row instance is reused for every line.
+     *
+     * @param path Path to the CSV file
+     * @param consumer Receives every data row
+     * @throws IOException If the file can't be read or contains a line longer than a mapping window
+     */
+    static void read(Path path, CSVRowConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            read(channel, 0, channel.size(), true, consumer);
+        }
+    }
+
+    /**
+     * Reads the lines between two byte offsets of an open channel.
+     * The range is expected to start at the beginning of a line.
+     *
+     * @param channel Channel to map
+     * @param from First byte of the range
+     * @param to End of the range (exclusive)
+     * @param skipHeader Whether the first line of the range is a header
+     * @param consumer Receives every data row
+     * @throws IOException If the range can't be mapped or contains a line longer than a mapping window
+     */
+    static void read(FileChannel channel, long from, long to, boolean skipHeader,
+                     CSVRowConsumer consumer) throws IOException {
+        ByteCSVRow row = new ByteCSVRow();
+        row.setSchema(consumer.schema());
+        boolean isHeader = skipHeader;
+        long position = from;
+
+        while (position < to) {
+            long windowSize = Math.min(to - position, MAX_WINDOW);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+            int limit = (int) windowSize;
+
+            // Unless this is the last window, stop after the last complete line
+            if (position + windowSize < to) {
+                int lastNewline = limit - 1;
+                while (lastNewline >= 0 && window.get(lastNewline) != '\n') {
+                    lastNewline--;
+                }
+                if (lastNewline < 0) {
+                    throw new IOException("Line longer than " + MAX_WINDOW + " bytes at offset " + position);
+                }
+                limit = lastNewline + 1;
+            }
+
+            isHeader = readLines(window, limit, isHeader, row, consumer);
+            position += limit;
+        }
+    }
+
+    /**
+     * Hands the lines of a buffer to the consumer, the last one ending at the limit or at a newline.
+     * Lines the consumer doesn't accept aren't split.
+     * @param buffer Buffer with complete lines, starting at index 0
+     * @param limit End of the lines (exclusive)
+     * @param skipHeader Whether the first line is a header, which is handed to {@link CSVRowConsumer#header}
+     * @param row Row to reuse for every line
+     * @param consumer Receives every data row
+     * @return Whether the header is still to be skipped, i.e. false unless the buffer was empty
+     */
+    static boolean readLines(ByteBuffer buffer, int limit, boolean skipHeader, ByteCSVRow row,
+                             CSVRowConsumer consumer) {
+        boolean isHeader = skipHeader;
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (isHeader) {
+                isHeader = false;
+                row.setSchema(consumer.header(buffer, lineStart, lineEnd));
+            } else if (consumer.acceptsLine(buffer, lineStart, lineEnd)) {
+                consumer.accept(row.set(buffer, lineStart, lineEnd));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return isHeader;
+    }
+}
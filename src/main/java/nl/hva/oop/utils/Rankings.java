@@ -0,0 +1,225 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.Candidate;
+import nl.hva.oop.models.Party;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Top-N rankings of the parties and candidates of a {@link CSVImporter}, nationally or per region.
+ * A ranking is selected with a bounded heap instead of sorting everything, so a top 10 of n items costs O(n log 10),
+ * and is cached after its first use. Rankings are selected from the importer's {@link ElectionSnapshot},
+ * and the cache is dropped when the importer publishes a new one. Every method also takes the snapshot to rank,
+ * so a caller that reads the snapshot itself ranks the same generation it reads; an older snapshot isn't cached.
+ * Safe to use from multiple threads, also while the importer imports again.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class Rankings {
+    /**
+     * Parties by seats (descending), then by name, which is the order Main prints them in.
+     */
+    public static final Comparator<Party> BY_SEATS =
+            Comparator.comparingInt(Party::getSeats).reversed().thenComparing(Party::getName);
+
+    /**
+     * Candidates by votes (descending), then by list number and candidate number.
+     */
+    public static final Comparator<Candidate> BY_VOTES =
+            Comparator.comparingInt(Candidate::getTotalVotes).reversed()
+                    .thenComparingInt((Candidate c) -> c.getParty().getListNumber())
+                    .thenComparingInt(Candidate::getCandidateNumber);
+
+    private final CSVImporter importer;
+    private final Map<Key, Ranking<?>> cache = new ConcurrentHashMap<>();
+    private volatile long generation;
+
+    private enum Kind { PARTIES_BY_SEATS, PARTIES_BY_VOTES, CANDIDATES, PARTY_CANDIDATES }
+
+    // Region null means the national ranking
+    private record Key(Kind kind, String region, String party) {
+    }
+
+    /**
+     * A cached ranking of (at most) the first n items; complete if it has fewer than n items.
+     */
+    private record Ranking<T>(long generation, int n, List<T> items) {
+    }
+
+    /**
+     * Selects a ranking of at most n items from a snapshot.
+     */
+    @FunctionalInterface
+    private interface Selector<T> {
+        List<T> select(ElectionSnapshot snapshot, int n);
+    }
+
+    /**
+     * @param importer Importer to rank the data of
+     */
+    public Rankings(CSVImporter importer) {
+        this.importer = importer;
+        this.generation = importer.getSnapshot().getGeneration();
+    }
+
+    /**
+     * @param region Region name as in {@link ElectionSnapshot#getRegionPartyMap()}, or null for the national ranking
+     * @param n Maximum number of parties
+     * @return The parties with the most seats, see {@link #BY_SEATS}
+     */
+    public List<Party> topPartiesBySeats(String region, int n) {
+        return topPartiesBySeats(importer.getSnapshot(), region, n);
+    }
+
+    /**
+     * @param election Snapshot of the importer to rank
+     * @see #topPartiesBySeats(String, int)
+     */
+    public List<Party> topPartiesBySeats(ElectionSnapshot election, String region, int n) {
+        return ranking(election, new Key(Kind.PARTIES_BY_SEATS, region, null), n,
+                (snapshot, size) -> top(parties(snapshot, region), size, BY_SEATS));
+    }
+
+    /**
+     * @param region Region name, or null for the national ranking
+     * @param n Maximum number of parties
+     * @return The parties with the most votes of their candidates in the region, then by name
+     */
+    public List<Party> topPartiesByVotes(String region, int n) {
+        return topPartiesByVotes(importer.getSnapshot(), region, n);
+    }
+
+    /**
+     * @param election Snapshot of the importer to rank
+     * @see #topPartiesByVotes(String, int)
+     */
+    public List<Party> topPartiesByVotes(ElectionSnapshot election, String region, int n) {
+        return ranking(election, new Key(Kind.PARTIES_BY_VOTES, region, null), n, (snapshot, size) -> {
+            // The votes of a party are summed once per ranking, not once per comparison
+            Map<Party, Long> votes = new IdentityHashMap<>();
+            for (Party party : parties(snapshot, region)) {
+                votes.put(party, getVotes(party));
+            }
+            return top(votes.keySet(), size,
+                    Comparator.comparingLong((Party p) -> votes.get(p)).reversed().thenComparing(Party::getName));
+        });
+    }
+
+    /**
+     * @param region Region name, or null for the national ranking
+     * @param n Maximum number of candidates
+     * @return The candidates of all parties with the most votes in the region, see {@link #BY_VOTES}
+     */
+    public List<Candidate> topCandidates(String region, int n) {
+        return topCandidates(importer.getSnapshot(), region, n);
+    }
+
+    /**
+     * @param election Snapshot of the importer to rank
+     * @see #topCandidates(String, int)
+     */
+    public List<Candidate> topCandidates(ElectionSnapshot election, String region, int n) {
+        return ranking(election, new Key(Kind.CANDIDATES, region, null), n, (snapshot, size) -> {
+            List<Candidate> candidates = new ArrayList<>();
+            for (Party party : parties(snapshot, region)) {
+                candidates.addAll(party.getCandidates());
+            }
+            return top(candidates, size, BY_VOTES);
+        });
+    }
+
+    /**
+     * @param region Region name, or null for the national ranking
+     * @param partyName Name of the party
+     * @param n Maximum number of candidates
+     * @return The candidates of the party with the most votes in the region, see {@link #BY_VOTES}
+     */
+    public List<Candidate> topCandidates(String region, String partyName, int n) {
+        return topCandidates(importer.getSnapshot(), region, partyName, n);
+    }
+
+    /**
+     * @param election Snapshot of the importer to rank
+     * @see #topCandidates(String, String, int)
+     */
+    public List<Candidate> topCandidates(ElectionSnapshot election, String region, String partyName, int n) {
+        return ranking(election, new Key(Kind.PARTY_CANDIDATES, region, partyName), n, (snapshot, size) -> {
+            Party party = partyMap(snapshot, region).get(partyName);
+            return party != null ? top(party.getCandidates(), size, BY_VOTES) : List.of();
+        });
+    }
+
+    /**
+     * @return Sum of the votes of the candidates of the party
+     */
+    public static long getVotes(Party party) {
+        long votes = 0;
+        for (Candidate c : party.getCandidates()) {
+            votes += c.getTotalVotes();
+        }
+        return votes;
+    }
+
+    private static Map<String, Party> partyMap(ElectionSnapshot snapshot, String region) {
+        if (region == null) {
+            return snapshot.getPartyMap();
+        }
+        return snapshot.getRegionPartyMap().getOrDefault(region, Map.of());
+    }
+
+    private static Collection<Party> parties(ElectionSnapshot snapshot, String region) {
+        return partyMap(snapshot, region).values();
+    }
+
+    /**
+     * Returns the cached ranking of the key in the snapshot, selecting it again if it's outdated or has fewer than
+     * n items while more may exist. The ranking of a snapshot older than the cached ones is selected, not cached.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> ranking(ElectionSnapshot snapshot, Key key, int n, Selector<T> selector) {
+        long current = snapshot.getGeneration();
+        if (current > generation) {
+            // Re-imported: every cached ranking is outdated
+            generation = current;
+            cache.clear();
+        } else if (current < generation) {
+            return selector.select(snapshot, n);
+        }
+
+        Ranking<T> ranking = (Ranking<T>) cache.get(key);
+        boolean outdated = ranking == null || ranking.generation() != current;
+        if (outdated || (ranking.n() < n && ranking.items().size() == ranking.n())) {
+            ranking = new Ranking<>(current, n, selector.select(snapshot, n));
+            cache.put(key, ranking);
+        }
+        List<T> result = ranking.items();
+        return result.size() > n ? result.subList(0, n) : result;
+    }
+
+    /**
+     * Selects the first n items in the given order with a heap of at most n items, then sorts only those.
+     * @param items Items to select from
+     * @param n Maximum number of items
+     * @param order Order of the result
+     * @return Unmodifiable list of the first n items
+     */
+    public static <T> List<T> top(Collection<? extends T> items, int n, Comparator<? super T> order) {
+        if (n <= 0 || items.isEmpty()) {
+            return List.of();
+        }
+        // Head of the heap is the worst item selected so far
+        Comparator<? super T> reversed = Collections.reverseOrder(order);
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.min(n, items.size()) + 1, reversed);
+        for (T item : items) {
+            if (heap.size() < n) {
+                heap.add(item);
+            } else if (order.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,350 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.Country;
+import nl.hva.oop.models.Municipality;
+import nl.hva.oop.models.Province;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The regions of an import by region code, one object per code: the country, the provinces and the municipalities
+ * (including the kieskringen, which the importer stores as municipalities of their province).
+ * The hierarchy is the one of {@link RegionRollups}: L528 → P.. → K.. → G.., so a municipality is a child of its
+ * kieskring, or of its province if the import has no kieskring for it.
+ * Every region gets an id in order of appearance; the hierarchy is kept in flat arrays indexed by that id:
+ * the parent of every region, and the children of all regions in one array, grouped per parent.
+ * Looking up the parent, the children or the path to the country is one map lookup and a few array reads.
+ * <p>
+ * {@link CSVImporter} fills a registry while it imports and publishes an immutable {@link #copy()} of it
+ * in every {@link ElectionSnapshot}; only such a copy is safe to read from multiple threads.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class RegionRegistry {
+    /**
+     * Level of a region in the hierarchy, from the root down. Also the level of a {@link RegionSearchIndex.Region}.
+     */
+    public enum Level { COUNTRY, PROVINCE, KIESKRING, MUNICIPALITY }
+
+    // Parent of a region without one, e.g. the country
+    private static final int NONE = -1;
+    // Region code prefix of the kieskringen
+    private static final String KIESKRING_PREFIX = "K";
+
+    private final Map<String, Integer> idByCode;
+    private final List<Country> countries;
+    private final List<Province> provinces;
+    private final List<Municipality> municipalities;
+    private final boolean frozen;
+
+    // Per id: the code, the level, the index in the list of that level and the id of the parent
+    private String[] codes;
+    private Level[] levels;
+    private int[] indexes;
+    private int[] parents;
+    // Per id of a municipality: the code of its kieskring, which may be added after the municipality
+    private String[] kieskringCodes;
+    private int size;
+
+    /*
+     * The children of region id are children[childStart[id]] up to children[childStart[id + 1]],
+     * in order of appearance. Rebuilt when they're asked for after regions were added.
+     */
+    private int[] childStart;
+    private int[] children;
+    private int indexedSize = NONE;
+
+    public RegionRegistry() {
+        this.idByCode = new HashMap<>();
+        this.countries = new ArrayList<>();
+        this.provinces = new ArrayList<>();
+        this.municipalities = new ArrayList<>();
+        this.frozen = false;
+        this.codes = new String[16];
+        this.levels = new Level[16];
+        this.indexes = new int[16];
+        this.parents = new int[16];
+        this.kieskringCodes = new String[16];
+    }
+
+    private RegionRegistry(RegionRegistry registry) {
+        this.idByCode = Map.copyOf(registry.idByCode);
+        this.countries = List.copyOf(registry.countries);
+        this.provinces = List.copyOf(registry.provinces);
+        this.municipalities = List.copyOf(registry.municipalities);
+        this.frozen = true;
+        this.size = registry.size;
+        this.codes = Arrays.copyOf(registry.codes, size);
+        this.levels = Arrays.copyOf(registry.levels, size);
+        this.indexes = Arrays.copyOf(registry.indexes, size);
+        this.parents = Arrays.copyOf(registry.parents, size);
+        this.kieskringCodes = Arrays.copyOf(registry.kieskringCodes, size);
+        // Built now, so readers never write to the copy
+        indexChildren();
+    }
+
+    /**
+     * Returns an immutable copy of the registry, e.g. for a snapshot that readers use while the next import
+     * changes this one. The copy shares the region objects, which are immutable.
+     */
+    public RegionRegistry copy() {
+        return new RegionRegistry(this);
+    }
+
+    /**
+     * Adds a country, unless a region with its code was added before.
+     * @return True if the country was added
+     */
+    boolean add(Country country) {
+        return add(country.getCode(), Level.COUNTRY, countries.size(), NONE) && countries.add(country);
+    }
+
+    /**
+     * Adds a province below its country, unless a region with its code was added before.
+     * @return True if the province was added
+     */
+    boolean add(Province province) {
+        int parent = province.getCountry() != null ? idOf(province.getCountry().getCode()) : NONE;
+        return add(province.getCode(), Level.PROVINCE, provinces.size(), parent) && provinces.add(province);
+    }
+
+    /**
+     * Adds a municipality or a kieskring (a code starting with "K") below its province, unless a region with its
+     * code was added before. A municipality is added below its kieskring instead, also if that's added later.
+     * @param parentCode Code of the parent region in the CSV file, e.g. "K1" for a municipality
+     * @return True if the municipality was added
+     */
+    boolean add(Municipality municipality, String parentCode) {
+        String code = municipality.getCode();
+        int parent = municipality.getProvince() != null ? idOf(municipality.getProvince().getCode()) : NONE;
+        if (code.startsWith(KIESKRING_PREFIX)) {
+            if (!add(code, Level.KIESKRING, municipalities.size(), parent)) {
+                return false;
+            }
+            // Municipalities that were added before their kieskring move below it
+            for (int id = 0; id < size - 1; id++) {
+                if (code.equals(kieskringCodes[id])) {
+                    parents[id] = size - 1;
+                }
+            }
+            return municipalities.add(municipality);
+        }
+
+        boolean inKieskring = parentCode != null && parentCode.startsWith(KIESKRING_PREFIX);
+        int kieskring = inKieskring ? idOf(parentCode) : NONE;
+        if (!add(code, Level.MUNICIPALITY, municipalities.size(), kieskring != NONE ? kieskring : parent)) {
+            return false;
+        }
+        if (inKieskring) {
+            kieskringCodes[size - 1] = parentCode;
+        }
+        return municipalities.add(municipality);
+    }
+
+    private boolean add(String code, Level level, int index, int parent) {
+        if (frozen) {
+            throw new UnsupportedOperationException("The region registry is a copy and can't be changed");
+        }
+        if (idByCode.putIfAbsent(code, size) != null) {
+            return false;
+        }
+        if (size == codes.length) {
+            int length = size * 2;
+            codes = Arrays.copyOf(codes, length);
+            levels = Arrays.copyOf(levels, length);
+            indexes = Arrays.copyOf(indexes, length);
+            parents = Arrays.copyOf(parents, length);
+            kieskringCodes = Arrays.copyOf(kieskringCodes, length);
+        }
+        codes[size] = code;
+        levels[size] = level;
+        indexes[size] = index;
+        parents[size] = parent;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes all regions.
+     */
+    void clear() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The region registry is a copy and can't be changed");
+        }
+        idByCode.clear();
+        countries.clear();
+        provinces.clear();
+        municipalities.clear();
+        Arrays.fill(codes, 0, size, null);
+        Arrays.fill(kieskringCodes, 0, size, null);
+        size = 0;
+        indexedSize = NONE;
+    }
+
+    /**
+     * Groups the ids of all regions by the id of their parent with a counting sort, keeping the order of appearance.
+     */
+    private void indexChildren() {
+        int[] start = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            if (parents[id] != NONE) {
+                start[parents[id] + 1]++;
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            start[id + 1] += start[id];
+        }
+        int[] next = Arrays.copyOf(start, size);
+        int[] grouped = new int[start[size]];
+        for (int id = 0; id < size; id++) {
+            if (parents[id] != NONE) {
+                grouped[next[parents[id]]++] = id;
+            }
+        }
+        childStart = start;
+        children = grouped;
+        indexedSize = size;
+    }
+
+    private int idOf(String code) {
+        // The map of a copy doesn't accept null
+        Integer id = code != null ? idByCode.get(code) : null;
+        return id != null ? id : NONE;
+    }
+
+    /**
+     * @return Number of regions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param code Region code, e.g. "G0363"
+     * @return True if the registry has a region with that code
+     */
+    public boolean contains(String code) {
+        return idOf(code) != NONE;
+    }
+
+    /**
+     * @param code Region code
+     * @return Level of the region, or null if there's no region with that code
+     */
+    public Level getLevel(String code) {
+        int id = idOf(code);
+        return id != NONE ? levels[id] : null;
+    }
+
+    /**
+     * @param code Region code, e.g. "G0363"
+     * @return Code of the parent, e.g. "K9", or null for the country and unknown codes
+     */
+    public String getParent(String code) {
+        int id = idOf(code);
+        return id != NONE && parents[id] != NONE ? codes[parents[id]] : null;
+    }
+
+    /**
+     * @param code Region code, e.g. "P27"
+     * @return Unmodifiable view of the codes of the children in order of appearance, empty for a municipality
+     * or an unknown code
+     */
+    public List<String> getChildren(String code) {
+        int id = idOf(code);
+        if (id == NONE) {
+            return List.of();
+        }
+        if (indexedSize != size) {
+            indexChildren();
+        }
+        int from = childStart[id];
+        int to = childStart[id + 1];
+        int[] ids = children;
+        String[] names = codes;
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return names[ids[from + index]];
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    /**
+     * The hierarchy has four levels, so the path has at most four codes.
+     * @param code Region code, e.g. "G0363"
+     * @return Codes from the region up to and including the country, e.g. ["G0363", "K9", "P27", "L528"],
+     * or an empty list for an unknown code
+     */
+    public List<String> getPath(String code) {
+        int id = idOf(code);
+        if (id == NONE) {
+            return List.of();
+        }
+        String[] path = new String[Level.values().length];
+        int length = 0;
+        for (; id != NONE && length < path.length; id = parents[id]) {
+            path[length++] = codes[id];
+        }
+        return Collections.unmodifiableList(Arrays.asList(path).subList(0, length));
+    }
+
+    /**
+     * @return The country with that code, or null if there is none
+     */
+    public Country getCountry(String code) {
+        int id = idOf(code);
+        return id != NONE && levels[id] == Level.COUNTRY ? countries.get(indexes[id]) : null;
+    }
+
+    /**
+     * @return The province with that code, or null if there is none
+     */
+    public Province getProvince(String code) {
+        int id = idOf(code);
+        return id != NONE && levels[id] == Level.PROVINCE ? provinces.get(indexes[id]) : null;
+    }
+
+    /**
+     * @return The municipality or kieskring with that code, or null if there is none
+     */
+    public Municipality getMunicipality(String code) {
+        int id = idOf(code);
+        return id != NONE && (levels[id] == Level.MUNICIPALITY || levels[id] == Level.KIESKRING)
+                ? municipalities.get(indexes[id]) : null;
+    }
+
+    /**
+     * @return Unmodifiable list of the countries in order of appearance
+     */
+    public List<Country> getCountries() {
+        return frozen ? countries : Collections.unmodifiableList(countries);
+    }
+
+    /**
+     * @return Unmodifiable list of the provinces in order of appearance
+     */
+    public List<Province> getProvinces() {
+        return frozen ? provinces : Collections.unmodifiableList(provinces);
+    }
+
+    /**
+     * @return Unmodifiable list of the municipalities and kieskringen in order of appearance, one per region code
+     */
+    public List<Municipality> getMunicipalities() {
+        return frozen ? municipalities : Collections.unmodifiableList(municipalities);
+    }
+}
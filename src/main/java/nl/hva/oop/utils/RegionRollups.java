@@ -0,0 +1,254 @@
+package nl.hva.oop.utils;
+
+import java.util.*;
+
+/**
+ * Vote totals for every node of the region hierarchy L528 → P.. → K.. → G.., aggregated while importing.
+ * Every row of a leaf region (a municipality, "G..") is added to the leaf itself and to its parent, grandparent
+ * and the country, so the totals of any region are available in O(1) instead of walking all municipalities.
+ * <p>
+ * Next to these rolled-up totals, the totals the Kiesraad reports for a region in its own rows are kept,
+ * and {@link #checkConsistency()} compares the two.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class RegionRollups {
+    /**
+     * Region code of the country, the root of the hierarchy.
+     */
+    public static final String COUNTRY_CODE = "L528";
+
+    /**
+     * Region code prefix of the leaves of the TK2023 file, the municipalities.
+     */
+    public static final String DEFAULT_LEAF_PREFIX = "G";
+
+    private final String leafPrefix;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * A difference between the rolled-up and the reported value of a region.
+     * @param regionCode Region code
+     * @param fieldType Field type of the value
+     * @param listNumber List number, or -1 for a statistic
+     * @param candidateNumber Candidate number, or -1 for a party or a statistic
+     * @param reported Value in the Kiesraad's row for the region
+     * @param rolledUp Sum of the values of the leaves below the region
+     */
+    public record Mismatch(String regionCode, FieldType fieldType, int listNumber, int candidateNumber,
+                           long reported, long rolledUp) {
+    }
+
+    private static final class Node {
+        private final String code;
+        private final boolean leaf;
+        // Parent, grandparent and country nodes a leaf rolls up into
+        private Node[] ancestors;
+        private final RegionTotals reported = new RegionTotals();
+        private final RegionTotals rolledUp;
+
+        Node(String code, boolean leaf) {
+            this.code = code;
+            this.leaf = leaf;
+            // A leaf is its own rollup
+            this.rolledUp = leaf ? reported : new RegionTotals();
+        }
+    }
+
+    public RegionRollups() {
+        this(DEFAULT_LEAF_PREFIX);
+    }
+
+    /**
+     * @param leafPrefix Region code prefix of the leaves of the hierarchy, e.g. "G" for municipalities
+     */
+    public RegionRollups(String leafPrefix) {
+        this.leafPrefix = leafPrefix;
+    }
+
+    public String getLeafPrefix() {
+        return leafPrefix;
+    }
+
+    /**
+     * @return True if values of the field type are rolled up: party votes, candidate votes and country statistics
+     */
+    static boolean isRolledUp(FieldType fieldType) {
+        return fieldType.isCountryStat() || fieldType == FieldType.LIJST_AANTAL_STEMMEN
+                || fieldType == FieldType.KANDIDAAT_AANTAL_STEMMEN;
+    }
+
+    /**
+     * Sets the value of a row in its region and, for a leaf, updates the regions above it by the difference
+     * with the previous value. A region has one row per value, so reading a row again changes nothing.
+     */
+    void add(String regionCode, String parentCode, String grandParentCode, FieldType fieldType,
+             int listNumber, int candidateNumber, long value) {
+        Node node = node(regionCode, parentCode, grandParentCode);
+        long difference = value - node.reported.get(fieldType, listNumber, candidateNumber);
+        node.reported.add(fieldType, listNumber, candidateNumber, difference);
+        if (node.leaf) {
+            for (Node ancestor : node.ancestors) {
+                ancestor.rolledUp.add(fieldType, listNumber, candidateNumber, difference);
+            }
+        }
+    }
+
+    private Node node(String regionCode, String parentCode, String grandParentCode) {
+        Node node = nodes.get(regionCode);
+        if (node == null) {
+            node = new Node(regionCode, regionCode.startsWith(leafPrefix));
+            nodes.put(regionCode, node);
+            if (node.leaf) {
+                node.ancestors = ancestors(parentCode, grandParentCode);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return The nodes of the given codes and of the country, without empty or duplicate codes
+     */
+    private Node[] ancestors(String... codes) {
+        List<Node> ancestors = new ArrayList<>(3);
+        for (int i = 0; i <= codes.length; i++) {
+            String code = i < codes.length ? codes[i] : COUNTRY_CODE;
+            if (code != null && !code.isEmpty() && ancestors.stream().noneMatch(a -> a.code.equals(code))) {
+                ancestors.add(node(code, null, null));
+            }
+        }
+        return ancestors.toArray(new Node[0]);
+    }
+
+    /**
+     * Adds a value to the rolled-up totals of a region above the leaves, e.g. the merged sums of its leaves
+     * of a {@link BoundedRollupImporter}, which doesn't keep the leaves.
+     */
+    void addRolledUp(String regionCode, FieldType fieldType, int listNumber, int candidateNumber, long value) {
+        node(regionCode, null, null).rolledUp.add(fieldType, listNumber, candidateNumber, value);
+    }
+
+    /**
+     * Adds a region without values, e.g. when loading a snapshot, so the regions keep their order.
+     */
+    void addRegion(String regionCode, String parentCode, String grandParentCode) {
+        node(regionCode, parentCode, grandParentCode);
+    }
+
+    /**
+     * Adds the rollups of another import of the same kind, e.g. a partial import of importCSVParallel.
+     */
+    void addAll(RegionRollups other) {
+        for (Node otherNode : other.nodes.values()) {
+            Node node = nodes.get(otherNode.code);
+            if (node == null) {
+                node = new Node(otherNode.code, otherNode.leaf);
+                nodes.put(node.code, node);
+                if (node.leaf) {
+                    node.ancestors = ancestors(Arrays.stream(otherNode.ancestors).map(a -> a.code).toArray(String[]::new));
+                }
+            }
+            node.reported.addAll(otherNode.reported);
+            if (!node.leaf) {
+                node.rolledUp.addAll(otherNode.rolledUp);
+            }
+        }
+    }
+
+    /**
+     * @return The region codes, in the order the regions were first seen
+     */
+    public Set<String> getRegionCodes() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * @return Codes of the regions a leaf rolls up into, or an empty list for a region that isn't a leaf
+     */
+    List<String> getAncestorCodes(String regionCode) {
+        Node node = nodes.get(regionCode);
+        if (node == null || !node.leaf) {
+            return List.of();
+        }
+        return Arrays.stream(node.ancestors).map(a -> a.code).toList();
+    }
+
+    /**
+     * @param regionCode Region code, e.g. "L528", "P20", "K1" or "G0363"
+     * @return Totals of all leaves in the region (for a leaf: its own totals), or null for an unknown region
+     */
+    public RegionTotals getTotals(String regionCode) {
+        Node node = nodes.get(regionCode);
+        return node != null ? node.rolledUp : null;
+    }
+
+    /**
+     * @param regionCode Region code
+     * @return Totals from the Kiesraad's own rows of the region, or null for an unknown region
+     */
+    public RegionTotals getReportedTotals(String regionCode) {
+        Node node = nodes.get(regionCode);
+        return node != null ? node.reported : null;
+    }
+
+    /**
+     * @return Rolled-up votes of the party in the region, or 0
+     */
+    public long getPartyVotes(String regionCode, int listNumber) {
+        RegionTotals totals = getTotals(regionCode);
+        return totals != null ? totals.getPartyVotes(listNumber) : 0;
+    }
+
+    /**
+     * @return Rolled-up votes of the candidate in the region, or 0
+     */
+    public long getCandidateVotes(String regionCode, int listNumber, int candidateNumber) {
+        RegionTotals totals = getTotals(regionCode);
+        return totals != null ? totals.getCandidateVotes(listNumber, candidateNumber) : 0;
+    }
+
+    /**
+     * @return Rolled-up value of a country statistic in the region, or 0
+     */
+    public long getStat(String regionCode, FieldType fieldType) {
+        RegionTotals totals = getTotals(regionCode);
+        return totals != null ? totals.getStat(fieldType) : 0;
+    }
+
+    /**
+     * Compares, for every region above the leaves that has both, the totals the Kiesraad reports
+     * with the totals rolled up from the leaves.
+     * @return The differences, empty if the file is consistent
+     */
+    public List<Mismatch> checkConsistency() {
+        List<Mismatch> mismatches = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (node.leaf || node.reported.isEmpty() || node.rolledUp.isEmpty()) {
+                continue;
+            }
+            RegionTotals reported = node.reported;
+            RegionTotals rolledUp = node.rolledUp;
+            for (FieldType fieldType : FieldType.values()) {
+                if (fieldType.isCountryStat() && reported.getStat(fieldType) != rolledUp.getStat(fieldType)) {
+                    mismatches.add(new Mismatch(node.code, fieldType, -1, -1,
+                            reported.getStat(fieldType), rolledUp.getStat(fieldType)));
+                }
+            }
+            int maxList = Math.max(reported.maxListNumber(), rolledUp.maxListNumber());
+            for (int list = 0; list <= maxList; list++) {
+                if (reported.getPartyVotes(list) != rolledUp.getPartyVotes(list)) {
+                    mismatches.add(new Mismatch(node.code, FieldType.LIJST_AANTAL_STEMMEN, list, -1,
+                            reported.getPartyVotes(list), rolledUp.getPartyVotes(list)));
+                }
+                int maxCandidate = Math.max(reported.maxCandidateNumber(list), rolledUp.maxCandidateNumber(list));
+                for (int candidate = 0; candidate <= maxCandidate; candidate++) {
+                    if (reported.getCandidateVotes(list, candidate) != rolledUp.getCandidateVotes(list, candidate)) {
+                        mismatches.add(new Mismatch(node.code, FieldType.KANDIDAAT_AANTAL_STEMMEN, list, candidate,
+                                reported.getCandidateVotes(list, candidate), rolledUp.getCandidateVotes(list, candidate)));
+                    }
+                }
+            }
+        }
+        return mismatches;
+    }
+}
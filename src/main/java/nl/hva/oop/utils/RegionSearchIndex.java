@@ -0,0 +1,351 @@
+package nl.hva.oop.utils;
+
+import nl.hva.oop.models.Country;
+import nl.hva.oop.models.Municipality;
+import nl.hva.oop.models.Province;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Searches the regions of an import by name: exact, by prefix (for autocomplete) and with a few typos.
+ * Names are compared by a normalized key without case, accents, spaces and punctuation,
+ * so "súdwest fryslan" finds Súdwest-Fryslân and "s-hertogenbosch" finds 's-Hertogenbosch.
+ * A name starting with "'s-" or "'t " can also be found without that prefix, e.g. as "hertogenbosch".
+ * <p>
+ * The keys are kept in one sorted array, so exact and prefix lookups are binary searches.
+ * The index isn't updated by a later import; build a new one from the next {@link ElectionSnapshot}.
+ * Safe to use from multiple threads.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class RegionSearchIndex {
+    /**
+     * Highest number of typos {@link #search(String, int)} allows for a query of 8 or more characters.
+     */
+    public static final int MAX_DISTANCE = 2;
+
+    /**
+     * A region that can be found.
+     * @param name Name as in the CSV file and in {@link ElectionSnapshot#getRegionPartyMap()}
+     * @param code Region code, e.g. "G0363", or null if the region isn't in the {@link RegionRegistry}
+     * @param level Level of the region in the hierarchy, or null if the region isn't in the {@link RegionRegistry}
+     */
+    public record Region(String name, String code, RegionRegistry.Level level) {
+    }
+
+    // Sorted keys, and per key the region it belongs to
+    private final String[] keys;
+    private final Region[] regions;
+    // Length of the common prefix of each key and the key before it, so the sorted keys can be walked like a trie
+    private final int[] commonPrefix;
+    private final int maxKeyLength;
+    private final int size;
+
+    /**
+     * Indexes the country, the provinces, the municipalities and the other regions with parties of the last finished
+     * import.
+     * @param importer Importer to index the regions of
+     */
+    public RegionSearchIndex(CSVImporter importer) {
+        this(importer.getSnapshot());
+    }
+
+    /**
+     * Indexes the country, the provinces, the municipalities and the other regions with parties of an import.
+     * @param snapshot Snapshot of the import
+     */
+    public RegionSearchIndex(ElectionSnapshot snapshot) {
+        this(regionsOf(snapshot));
+    }
+
+    /**
+     * @param regions Regions to index; a region with the same code and name as an earlier one is skipped
+     */
+    public RegionSearchIndex(Collection<Region> regions) {
+        // Key -> region, sorted by key then in the given order
+        List<Map.Entry<String, Region>> entries = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Region region : regions) {
+            if (!seen.add(region.code() + ';' + region.name())) {
+                continue;
+            }
+            String key = normalize(region.name());
+            entries.add(Map.entry(key, region));
+            String alias = withoutArticle(key, region.name());
+            if (alias != null) {
+                entries.add(Map.entry(alias, region));
+            }
+        }
+        entries.sort(Map.Entry.comparingByKey());
+        size = seen.size();
+
+        keys = new String[entries.size()];
+        this.regions = new Region[entries.size()];
+        commonPrefix = new int[entries.size()];
+        int maxLength = 0;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = entries.get(i).getKey();
+            this.regions[i] = entries.get(i).getValue();
+            if (i > 0) {
+                String previous = keys[i - 1];
+                int length = 0;
+                while (length < previous.length() && length < keys[i].length()
+                        && previous.charAt(length) == keys[i].charAt(length)) {
+                    length++;
+                }
+                commonPrefix[i] = length;
+            }
+            maxLength = Math.max(maxLength, keys[i].length());
+        }
+        maxKeyLength = maxLength;
+    }
+
+    private static List<Region> regionsOf(ElectionSnapshot snapshot) {
+        List<Region> regions = new ArrayList<>();
+        RegionRegistry registry = snapshot.getRegions();
+        for (Country country : snapshot.getCountries()) {
+            regions.add(new Region(country.getName(), country.getCode(), RegionRegistry.Level.COUNTRY));
+        }
+        for (Province province : snapshot.getProvinces()) {
+            regions.add(new Region(province.getName(), province.getCode(), RegionRegistry.Level.PROVINCE));
+        }
+        for (Municipality municipality : snapshot.getMunicipalities()) {
+            // A kieskring or a municipality
+            regions.add(new Region(municipality.getName(), municipality.getCode(),
+                    registry.getLevel(municipality.getCode())));
+        }
+
+        // Regions with parties but without a registry entry, e.g. a municipality whose province row was filtered
+        Set<String> names = new HashSet<>();
+        for (Region region : regions) {
+            names.add(region.name());
+        }
+        List<String> unregistered = new ArrayList<>();
+        for (String name : snapshot.getRegionPartyMap().keySet()) {
+            if (!names.contains(name)) {
+                unregistered.add(name);
+            }
+        }
+        Collections.sort(unregistered);
+        for (String name : unregistered) {
+            regions.add(new Region(name, null, null));
+        }
+        return regions;
+    }
+
+    /**
+     * @return Number of distinct regions in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param name Name in any case, with or without accents, spaces or punctuation
+     * @return The regions with this name, empty if there are none
+     */
+    public List<Region> findExact(String name) {
+        String key = normalize(name);
+        List<Region> result = new ArrayList<>(2);
+        for (int i = lowerBound(key); i < keys.length && keys[i].equals(key); i++) {
+            addDistinct(result, regions[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @param prefix Start of a name, e.g. what the user typed so far
+     * @param limit Maximum number of regions
+     * @return Regions whose (normalized) name starts with the prefix, shortest names first
+     */
+    public List<Region> findByPrefix(String prefix, int limit) {
+        String key = normalize(prefix);
+        // Region -> length of its shortest matching key
+        Map<Region, Integer> lengths = new LinkedHashMap<>();
+        for (int i = lowerBound(key); i < keys.length && keys[i].startsWith(key); i++) {
+            lengths.merge(regions[i], keys[i].length(), Math::min);
+        }
+        // The closest completions first, e.g. "Utrecht" before "Utrechtse Heuvelrug"
+        return ranked(lengths, limit);
+    }
+
+    /**
+     * @param name Name, possibly with typos
+     * @param maxDistance Maximum number of inserted, deleted or replaced characters
+     * @param limit Maximum number of regions
+     * @return Regions within the distance of the name, closest first
+     */
+    public List<Region> findSimilar(String name, int maxDistance, int limit) {
+        String key = normalize(name);
+        int n = key.length();
+        // Region -> distance of its closest key
+        Map<Region, Integer> distances = new LinkedHashMap<>();
+
+        /*
+         * Row j of the Levenshtein matrix holds the distances between the first j characters of a key
+         * and every prefix of the query. Sorted keys that share a prefix share its rows, so each row is computed
+         * once per distinct prefix, and all keys below a prefix whose row exceeds maxDistance are skipped.
+         * Only the cells within maxDistance of the diagonal are computed, the others can't lead to a match.
+         */
+        int tooFar = maxDistance + 1;
+        int[][] rows = new int[maxKeyLength + 1][n + 1];
+        for (int i = 0; i <= n; i++) {
+            rows[0][i] = i;
+        }
+        // Number of rows after row 0 that are valid for the current key
+        int valid = 0;
+        int k = 0;
+        while (k < keys.length) {
+            String candidate = keys[k];
+            int depth = Math.min(valid, commonPrefix[k]);
+            boolean pruned = false;
+            while (depth < candidate.length()) {
+                int[] previous = rows[depth];
+                int[] current = rows[++depth];
+                char c = candidate.charAt(depth - 1);
+                int from = Math.max(1, depth - maxDistance);
+                int to = Math.min(n, depth + maxDistance);
+                current[from - 1] = from == 1 ? depth : tooFar;
+                int rowMin = current[from - 1];
+                for (int i = from; i <= to; i++) {
+                    int cost = key.charAt(i - 1) == c ? 0 : 1;
+                    int value = Math.min(previous[i - 1] + cost, Math.min(current[i - 1], previous[i]) + 1);
+                    current[i] = value;
+                    rowMin = Math.min(rowMin, value);
+                }
+                if (to < n) {
+                    // The next row reads this cell, just outside the band
+                    current[to + 1] = tooFar;
+                }
+                if (rowMin > maxDistance) {
+                    pruned = true;
+                    break;
+                }
+            }
+            valid = depth;
+
+            if (pruned) {
+                // No key starting with these depth characters can be close enough
+                do {
+                    k++;
+                } while (k < keys.length && commonPrefix[k] >= depth);
+                continue;
+            }
+
+            // The last cell is only in the band if the lengths differ by at most maxDistance
+            int distance = Math.abs(depth - n) <= maxDistance ? rows[depth][n] : tooFar;
+            if (distance <= maxDistance) {
+                distances.merge(regions[k], distance, Math::min);
+            }
+            k++;
+        }
+        return ranked(distances, limit);
+    }
+
+    /**
+     * @return The first regions by ascending score; regions with the same score stay in key order
+     */
+    private static List<Region> ranked(Map<Region, Integer> scores, int limit) {
+        List<Map.Entry<Region, Integer>> entries = new ArrayList<>(scores.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+        List<Region> ranked = new ArrayList<>(Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && ranked.size() < limit; i++) {
+            ranked.add(entries.get(i).getKey());
+        }
+        return ranked;
+    }
+
+    /**
+     * Finds regions the way a search box would: the exact matches if there are any, otherwise the names starting
+     * with the query, otherwise the names with at most 1 typo (2 for a query of 8 or more characters).
+     * @param query Name or start of a name
+     * @param limit Maximum number of regions
+     * @return The best matching regions, empty if none match
+     */
+    public List<Region> search(String query, int limit) {
+        if (normalize(query).isEmpty()) {
+            return List.of();
+        }
+        List<Region> result = findExact(query);
+        if (result.isEmpty()) {
+            result = findByPrefix(query, limit);
+        }
+        if (result.isEmpty()) {
+            int length = normalize(query).length();
+            if (length >= 3) {
+                result = findSimilar(query, length >= 8 ? MAX_DISTANCE : 1, limit);
+            }
+        }
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /**
+     * Returns the key a name is indexed by: lower case, without accents and without characters
+     * other than letters and digits, e.g. "'s-Hertogenbosch" becomes "shertogenbosch".
+     * @param name Name of a region
+     * @return Normalized key
+     */
+    public static String normalize(String name) {
+        // Most keys are already normalized, e.g. a query typed in lower case
+        int i = 0;
+        while (i < name.length() && isKeyChar(name.charAt(i))) {
+            i++;
+        }
+        if (i == name.length()) {
+            return name;
+        }
+
+        StringBuilder sb = new StringBuilder(name.length());
+        sb.append(name, 0, i);
+        for (; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                // The decomposition of a letter with an accent starts with the letter, e.g. 'â' -> 'a', '\u0302'
+                c = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            }
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isKeyChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return The key without "s" or "t" if the name starts with "'s" or "'t" (as in 's-Hertogenbosch), otherwise null
+     */
+    private static String withoutArticle(String key, String name) {
+        if (name.length() > 3 && (name.charAt(0) == '\'' || name.charAt(0) == '’')
+                && (name.charAt(1) == 's' || name.charAt(1) == 't')
+                && (name.charAt(2) == '-' || name.charAt(2) == ' ')) {
+            return key.substring(1);
+        }
+        return null;
+    }
+
+    /**
+     * @return Index of the first key that is not less than the given key
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void addDistinct(List<Region> regions, Region region) {
+        if (!regions.contains(region)) {
+            regions.add(region);
+        }
+    }
+}
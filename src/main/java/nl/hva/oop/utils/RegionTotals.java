@@ -0,0 +1,128 @@
+package nl.hva.oop.utils;
+
+import java.util.Arrays;
+
+/**
+ * Vote totals of one region: the country statistics (e.g. "Opkomst"), the votes per party ("LijstAantalStemmen")
+ * and the votes per candidate ("KandidaatAantalStemmen").
+ * Values are stored in arrays indexed by field type, list number and candidate number, so every getter is O(1).
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class RegionTotals {
+    private final long[] stats = new long[FieldType.values().length];
+    private long[] partyVotes = new long[0];
+    private long[][] candidateVotes = new long[0][];
+    private boolean empty = true;
+
+    /**
+     * @return True if this region has no values at all
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * @param fieldType One of the country statistics, e.g. {@link FieldType#OPKOMST}
+     * @return The value of the statistic, or 0
+     */
+    public long getStat(FieldType fieldType) {
+        return stats[fieldType.ordinal()];
+    }
+
+    /**
+     * @return Votes of the party, or 0
+     */
+    public long getPartyVotes(int listNumber) {
+        return listNumber >= 0 && listNumber < partyVotes.length ? partyVotes[listNumber] : 0;
+    }
+
+    /**
+     * @return Votes of the candidate, or 0
+     */
+    public long getCandidateVotes(int listNumber, int candidateNumber) {
+        if (listNumber < 0 || listNumber >= candidateVotes.length || candidateVotes[listNumber] == null) {
+            return 0;
+        }
+        long[] votes = candidateVotes[listNumber];
+        return candidateNumber >= 0 && candidateNumber < votes.length ? votes[candidateNumber] : 0;
+    }
+
+    /**
+     * @return The value of a statistic, party or candidate, the way {@link #add} addresses it, or 0
+     */
+    long get(FieldType fieldType, int listNumber, int candidateNumber) {
+        if (fieldType.isCountryStat()) {
+            return getStat(fieldType);
+        } else if (fieldType == FieldType.LIJST_AANTAL_STEMMEN) {
+            return getPartyVotes(listNumber);
+        } else if (fieldType == FieldType.KANDIDAAT_AANTAL_STEMMEN) {
+            return getCandidateVotes(listNumber, candidateNumber);
+        }
+        return 0;
+    }
+
+    /**
+     * @return Highest list number with a value, or -1
+     */
+    int maxListNumber() {
+        return Math.max(partyVotes.length, candidateVotes.length) - 1;
+    }
+
+    /**
+     * @return Highest candidate number of the list with a value, or -1
+     */
+    int maxCandidateNumber(int listNumber) {
+        return listNumber < candidateVotes.length && candidateVotes[listNumber] != null
+                ? candidateVotes[listNumber].length - 1 : -1;
+    }
+
+    /**
+     * Adds a value. Rows without a valid list number (or candidate number for candidate votes) are ignored.
+     */
+    void add(FieldType fieldType, int listNumber, int candidateNumber, long value) {
+        if (fieldType.isCountryStat()) {
+            stats[fieldType.ordinal()] += value;
+        } else if (fieldType == FieldType.LIJST_AANTAL_STEMMEN && listNumber >= 0) {
+            if (listNumber >= partyVotes.length) {
+                partyVotes = Arrays.copyOf(partyVotes, listNumber + 1);
+            }
+            partyVotes[listNumber] += value;
+        } else if (fieldType == FieldType.KANDIDAAT_AANTAL_STEMMEN && listNumber >= 0 && candidateNumber >= 0) {
+            if (listNumber >= candidateVotes.length) {
+                candidateVotes = Arrays.copyOf(candidateVotes, listNumber + 1);
+            }
+            long[] votes = candidateVotes[listNumber];
+            if (votes == null || candidateNumber >= votes.length) {
+                votes = votes == null ? new long[candidateNumber + 1] : Arrays.copyOf(votes, candidateNumber + 1);
+                candidateVotes[listNumber] = votes;
+            }
+            votes[candidateNumber] += value;
+        } else {
+            return;
+        }
+        empty = false;
+    }
+
+    /**
+     * Adds all values of other totals, e.g. of a partial import.
+     */
+    void addAll(RegionTotals other) {
+        for (FieldType fieldType : FieldType.values()) {
+            if (fieldType.isCountryStat() && other.getStat(fieldType) != 0) {
+                add(fieldType, -1, -1, other.getStat(fieldType));
+            }
+        }
+        for (int list = 0; list <= other.maxListNumber(); list++) {
+            if (other.getPartyVotes(list) != 0) {
+                add(FieldType.LIJST_AANTAL_STEMMEN, list, -1, other.getPartyVotes(list));
+            }
+            for (int candidate = 0; candidate <= other.maxCandidateNumber(list); candidate++) {
+                if (other.getCandidateVotes(list, candidate) != 0) {
+                    add(FieldType.KANDIDAAT_AANTAL_STEMMEN, list, candidate, other.getCandidateVotes(list, candidate));
+                }
+            }
+        }
+        empty &= other.empty;
+    }
+}
@@ -0,0 +1,469 @@
+package nl.hva.oop.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Selects the rows of an import on their region, party and veldType, e.g. to import only one province or only
+ * the "KandidaatAantalStemmen" rows. The filter is checked on the raw bytes (or characters) of a line before
+ * the line is split into columns: it only looks for the delimiters up to the last column it needs,
+ * so a row it rejects costs little more than that scan.
+ * <p>
+ * A filter is immutable; every {@code with...} method returns a new one. The criteria of a filter must all match,
+ * one of the values of a criterion is enough. Values are compared exactly (case-sensitive) to the trimmed columns.
+ * For example, {@code RowFilter.all().withinRegions("P27").withFieldTypes(FieldType.KANDIDAAT_AANTAL_STEMMEN)}
+ * keeps the candidate votes of the province with code P27 and of its municipalities.
+ * <p>
+ * Keep in mind that the importer only adds a municipality to the hierarchy if the row of its province was imported,
+ * and only fills the country stats from the rows of the country itself.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ * @see CSVImporter#setRowFilter(RowFilter)
+ */
+public final class RowFilter {
+    private static final RowFilter ALL = new RowFilter(null, null, null, null, null);
+    private static final byte SEPARATOR = ';';
+
+    private final String[] regionCodePrefixes;
+    private final String[] regionCodes;
+    private final int[] listNumbers;
+    private final String[] partyNames;
+    private final String[] fieldTypes;
+
+    // The same values as UTF-8 bytes, for lines that are read as bytes
+    private final byte[][] regionCodePrefixBytes;
+    private final byte[][] regionCodeBytes;
+    private final byte[][] partyNameBytes;
+    private final byte[][] fieldTypeBytes;
+
+    private RowFilter(String[] regionCodePrefixes, String[] regionCodes, int[] listNumbers, String[] partyNames,
+                      String[] fieldTypes) {
+        this.regionCodePrefixes = regionCodePrefixes;
+        this.regionCodes = regionCodes;
+        this.listNumbers = listNumbers;
+        this.partyNames = partyNames;
+        this.fieldTypes = fieldTypes;
+        this.regionCodePrefixBytes = utf8(regionCodePrefixes);
+        this.regionCodeBytes = utf8(regionCodes);
+        this.partyNameBytes = utf8(partyNames);
+        this.fieldTypeBytes = utf8(fieldTypes);
+    }
+
+    private static byte[][] utf8(String[] values) {
+        if (values == null) {
+            return null;
+        }
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the filter that keeps every row.
+     */
+    public static RowFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Keeps the rows whose region code (RegioCode) starts with one of the prefixes, e.g. "P" for the provinces.
+     * Together with {@link #withinRegions(String...)}, a row only has to match one of the two.
+     * @param prefixes One or more prefixes
+     * @return A new filter with this criterion instead of the previous prefixes
+     * @throws IllegalArgumentException If there are no prefixes or one of them is empty
+     */
+    public RowFilter withRegionCodePrefixes(String... prefixes) {
+        return new RowFilter(checkValues("region code prefix", prefixes), regionCodes, listNumbers, partyNames,
+                fieldTypes);
+    }
+
+    /**
+     * Keeps the rows of the regions with the given codes and of the regions below them: rows whose region code,
+     * parent region code (OuderRegioCode) or grandparent region code (GrootOuderRegioCode) is one of the codes.
+     * Together with {@link #withRegionCodePrefixes(String...)}, a row only has to match one of the two.
+     * @param codes One or more region codes, e.g. "P27" for a province and its municipalities
+     * @return A new filter with this criterion instead of the previous region codes
+     * @throws IllegalArgumentException If there are no codes or one of them is empty
+     */
+    public RowFilter withinRegions(String... codes) {
+        return new RowFilter(regionCodePrefixes, checkValues("region code", codes), listNumbers, partyNames,
+                fieldTypes);
+    }
+
+    /**
+     * Keeps the rows of the parties with the given list numbers (LijstNummer); rows without a party are dropped.
+     * @param numbers One or more list numbers
+     * @return A new filter with this criterion instead of the previous list numbers
+     * @throws IllegalArgumentException If there are no list numbers
+     */
+    public RowFilter withListNumbers(int... numbers) {
+        if (numbers == null || numbers.length == 0) {
+            throw new IllegalArgumentException("At least one list number is required");
+        }
+        return new RowFilter(regionCodePrefixes, regionCodes, numbers.clone(), partyNames, fieldTypes);
+    }
+
+    /**
+     * Keeps the rows of the parties with the given names (LijstNaam); rows without a party are dropped.
+     * @param names One or more party names, e.g. "VVD"
+     * @return A new filter with this criterion instead of the previous party names
+     * @throws IllegalArgumentException If there are no names or one of them is empty
+     */
+    public RowFilter withPartyNames(String... names) {
+        return new RowFilter(regionCodePrefixes, regionCodes, listNumbers, checkValues("party name", names),
+                fieldTypes);
+    }
+
+    /**
+     * Keeps the rows with the given veldTypes.
+     * @param types One or more veldTypes; {@link FieldType#UNKNOWN} has no name to match and isn't allowed
+     * @return A new filter with this criterion instead of the previous veldTypes
+     * @throws IllegalArgumentException If there are no veldTypes or one of them is UNKNOWN
+     */
+    public RowFilter withFieldTypes(FieldType... types) {
+        if (types == null || types.length == 0) {
+            throw new IllegalArgumentException("At least one veldType is required");
+        }
+        String[] names = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == null || types[i] == FieldType.UNKNOWN) {
+                throw new IllegalArgumentException("Can't filter on veldType " + types[i]);
+            }
+            names[i] = types[i].getName();
+        }
+        return new RowFilter(regionCodePrefixes, regionCodes, listNumbers, partyNames, names);
+    }
+
+    private static String[] checkValues(String criterion, String[] values) {
+        if (values == null || values.length == 0) {
+            throw new IllegalArgumentException("At least one " + criterion + " is required");
+        }
+        for (String value : values) {
+            if (value == null || value.isEmpty()) {
+                throw new IllegalArgumentException("Empty " + criterion + " in " + Arrays.toString(values));
+            }
+        }
+        return values.clone();
+    }
+
+    /**
+     * @return True if the filter keeps every row
+     */
+    public boolean isAll() {
+        return regionCodePrefixes == null && regionCodes == null && listNumbers == null && partyNames == null
+                && fieldTypes == null;
+    }
+
+    /**
+     * Returns the filter for the lines of a file with the given schema.
+     */
+    Matcher matcher(CSVSchema schema) {
+        return new Matcher(schema);
+    }
+
+    /**
+     * The filter for the lines of one file: knows in which columns of the file the criteria are checked.
+     * A criterion on a column the file doesn't have never matches.
+     */
+    final class Matcher {
+        private final CSVSchema schema;
+        // Column after which the region criteria are decided, and the last column the filter needs (-1 for none)
+        private final int regionColumn;
+        private final int lastColumn;
+        private final boolean rejectsAll;
+
+        private Matcher(CSVSchema schema) {
+            this.schema = schema;
+            int region = -1;
+            if (regionCodePrefixes != null || regionCodes != null) {
+                region = schema.columnOf(ElectionRecord.REGION_CODE);
+            }
+            if (regionCodes != null) {
+                region = Math.max(region, schema.columnOf(ElectionRecord.PARENT_REGION_CODE));
+                region = Math.max(region, schema.columnOf(ElectionRecord.GRANDPARENT_REGION_CODE));
+            }
+            this.regionColumn = region;
+
+            int last = region;
+            boolean missing = (regionCodePrefixes != null || regionCodes != null) && region < 0;
+            if (listNumbers != null) {
+                last = Math.max(last, schema.columnOf(ElectionRecord.LIST_NUMBER));
+                missing |= schema.columnOf(ElectionRecord.LIST_NUMBER) < 0;
+            }
+            if (partyNames != null) {
+                last = Math.max(last, schema.columnOf(ElectionRecord.PARTY_NAME));
+                missing |= schema.columnOf(ElectionRecord.PARTY_NAME) < 0;
+            }
+            if (fieldTypes != null) {
+                last = Math.max(last, schema.columnOf(ElectionRecord.FIELD_TYPE));
+                missing |= schema.columnOf(ElectionRecord.FIELD_TYPE) < 0;
+            }
+            this.lastColumn = last;
+            this.rejectsAll = missing;
+        }
+
+        /**
+         * Checks the UTF-8 bytes of a line. A line that ends before the last column the filter needs is rejected.
+         * @param buffer Buffer with the line
+         * @param lineStart First byte of the line
+         * @param lineEnd End of the line (exclusive), without the newline
+         * @return True if the row is kept
+         */
+        boolean test(ByteBuffer buffer, int lineStart, int lineEnd) {
+            if (lastColumn < 0 || rejectsAll) {
+                return !rejectsAll;
+            }
+            boolean regionMatched = false;
+            int column = 0;
+            int start = lineStart;
+            for (int i = lineStart; i <= lineEnd; i++) {
+                if (i < lineEnd && buffer.get(i) != SEPARATOR) {
+                    continue;
+                }
+                // Trim the column like ByteCSVRow does
+                int from = start;
+                int to = i;
+                while (from < to && (buffer.get(from) & 0xFF) <= ' ') {
+                    from++;
+                }
+                while (to > from && (buffer.get(to - 1) & 0xFF) <= ' ') {
+                    to--;
+                }
+
+                switch (schema.slotOf(column)) {
+                    case ElectionRecord.REGION_CODE ->
+                            regionMatched |= startsWithAny(buffer, from, to, regionCodePrefixBytes)
+                                    || equalsAny(buffer, from, to, regionCodeBytes);
+                    case ElectionRecord.PARENT_REGION_CODE, ElectionRecord.GRANDPARENT_REGION_CODE ->
+                            regionMatched |= equalsAny(buffer, from, to, regionCodeBytes);
+                    case ElectionRecord.LIST_NUMBER -> {
+                        if (listNumbers != null && !containsListNumber(parseListNumber(buffer, from, to))) {
+                            return false;
+                        }
+                    }
+                    case ElectionRecord.PARTY_NAME -> {
+                        if (partyNameBytes != null && !equalsAny(buffer, from, to, partyNameBytes)) {
+                            return false;
+                        }
+                    }
+                    case ElectionRecord.FIELD_TYPE -> {
+                        if (fieldTypeBytes != null && !equalsAny(buffer, from, to, fieldTypeBytes)) {
+                            return false;
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                if (column == regionColumn && !regionMatched) {
+                    return false;
+                }
+                if (column == lastColumn) {
+                    return true;
+                }
+                column++;
+                start = i + 1;
+            }
+            return false;
+        }
+
+        /**
+         * Checks the characters of a line, e.g. one read with a {@link java.io.BufferedReader}.
+         * A line that ends before the last column the filter needs is rejected.
+         * @param line Line without the newline
+         * @return True if the row is kept
+         */
+        boolean test(CharSequence line) {
+            if (lastColumn < 0 || rejectsAll) {
+                return !rejectsAll;
+            }
+            boolean regionMatched = false;
+            int column = 0;
+            int start = 0;
+            int length = line.length();
+            for (int i = 0; i <= length; i++) {
+                if (i < length && line.charAt(i) != SEPARATOR) {
+                    continue;
+                }
+                // Trim the column like LineCSVRow does
+                int from = start;
+                int to = i;
+                while (from < to && line.charAt(from) <= ' ') {
+                    from++;
+                }
+                while (to > from && line.charAt(to - 1) <= ' ') {
+                    to--;
+                }
+
+                switch (schema.slotOf(column)) {
+                    case ElectionRecord.REGION_CODE ->
+                            regionMatched |= startsWithAny(line, from, to, regionCodePrefixes)
+                                    || equalsAny(line, from, to, regionCodes);
+                    case ElectionRecord.PARENT_REGION_CODE, ElectionRecord.GRANDPARENT_REGION_CODE ->
+                            regionMatched |= equalsAny(line, from, to, regionCodes);
+                    case ElectionRecord.LIST_NUMBER -> {
+                        if (listNumbers != null && !containsListNumber(parseListNumber(line, from, to))) {
+                            return false;
+                        }
+                    }
+                    case ElectionRecord.PARTY_NAME -> {
+                        if (partyNames != null && !equalsAny(line, from, to, partyNames)) {
+                            return false;
+                        }
+                    }
+                    case ElectionRecord.FIELD_TYPE -> {
+                        if (fieldTypes != null && !equalsAny(line, from, to, fieldTypes)) {
+                            return false;
+                        }
+                    }
+                    default -> {
+                    }
+                }
+                if (column == regionColumn && !regionMatched) {
+                    return false;
+                }
+                if (column == lastColumn) {
+                    return true;
+                }
+                column++;
+                start = i + 1;
+            }
+            return false;
+        }
+    }
+
+    private boolean containsListNumber(int listNumber) {
+        for (int number : listNumbers) {
+            if (number == listNumber) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The list number, or -1 if the column is empty or not a number
+     */
+    private static int parseListNumber(ByteBuffer buffer, int from, int to) {
+        if (from == to || to - from > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int parseListNumber(CharSequence line, int from, int to) {
+        if (from == to || to - from > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean equalsAny(ByteBuffer buffer, int from, int to, byte[][] values) {
+        if (values == null) {
+            return false;
+        }
+        for (byte[] value : values) {
+            if (value.length == to - from && regionMatches(buffer, from, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWithAny(ByteBuffer buffer, int from, int to, byte[][] prefixes) {
+        if (prefixes == null) {
+            return false;
+        }
+        for (byte[] prefix : prefixes) {
+            if (prefix.length <= to - from && regionMatches(buffer, from, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(ByteBuffer buffer, int from, byte[] value) {
+        for (int i = 0; i < value.length; i++) {
+            if (buffer.get(from + i) != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsAny(CharSequence line, int from, int to, String[] values) {
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            if (value.length() == to - from && regionMatches(line, from, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWithAny(CharSequence line, int from, int to, String[] prefixes) {
+        if (prefixes == null) {
+            return false;
+        }
+        for (String prefix : prefixes) {
+            if (prefix.length() <= to - from && regionMatches(line, from, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(CharSequence line, int from, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (line.charAt(from + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        if (isAll()) {
+            return "RowFilter[all]";
+        }
+        StringBuilder sb = new StringBuilder("RowFilter[");
+        if (regionCodePrefixes != null) {
+            sb.append("regionCodePrefixes=").append(Arrays.toString(regionCodePrefixes)).append(' ');
+        }
+        if (regionCodes != null) {
+            sb.append("withinRegions=").append(Arrays.toString(regionCodes)).append(' ');
+        }
+        if (listNumbers != null) {
+            sb.append("listNumbers=").append(Arrays.toString(listNumbers)).append(' ');
+        }
+        if (partyNames != null) {
+            sb.append("partyNames=").append(Arrays.toString(partyNames)).append(' ');
+        }
+        if (fieldTypes != null) {
+            sb.append("fieldTypes=").append(Arrays.toString(fieldTypes)).append(' ');
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,132 @@
+package nl.hva.oop.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dictionary of the text values of an import (region names, party names, candidate names, field types, etc.).
+ * Every distinct value gets one canonical String instance and a stable int id, so the repeated values
+ * of the CSV file are stored only once. Safe to share between threads, e.g. the workers of a parallel import.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class StringDictionary {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[256];
+    private int size; // Guarded by this
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Returns the canonical instance of a value, adding it to the dictionary if it's new.
+     * @param value Value to intern, may be null
+     * @return The canonical instance, or null if the value is null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        return get(id(value));
+    }
+
+    /**
+     * Returns the id of a value, adding it to the dictionary if it's new.
+     * Ids are handed out in order, starting at 0.
+     * @param value Value to look up
+     * @return Id of the value
+     */
+    public int id(String value) {
+        lookups.increment();
+        Integer id = ids.get(value);
+        if (id != null) {
+            hits.increment();
+            return id;
+        }
+        return add(value);
+    }
+
+    private synchronized int add(String value) {
+        // Another thread may have added it in the meantime
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            hits.increment();
+            return existing;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        int id = size++;
+        current[id] = value;
+        values = current;
+        // Publishing the id last makes values[id] visible to every thread that finds it
+        ids.put(value, id);
+        return id;
+    }
+
+    /**
+     * Returns the id of a value without adding it, e.g. to look up a query argument.
+     * @param value Value to look up
+     * @return Id of the value, or -1 if it isn't in the dictionary
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @param id Id of a value
+     * @return The canonical instance of the value with that id
+     */
+    public String get(int id) {
+        return values[id];
+    }
+
+    /**
+     * Counts a lookup that was answered by a cache in front of this dictionary.
+     */
+    void recordHit() {
+        lookups.increment();
+        hits.increment();
+    }
+
+    /**
+     * @return Number of distinct values
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @return Number of values that were looked up, including repeated ones
+     */
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return Number of lookups that found an existing value
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Fraction of lookups that found an existing value, between 0 and 1
+     */
+    public double getHitRate() {
+        long total = lookups.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    @Override
+    public String toString() {
+        return "StringDictionary { " +
+                "size=" + size() +
+                ", lookups=" + getLookups() +
+                ", hitRate=" + String.format("%.4f", getHitRate()) +
+                " }";
+    }
+}
@@ -0,0 +1,129 @@
+package nl.hva.oop.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-threaded cache in front of a {@link StringDictionary}, keyed by the raw UTF-8 bytes of a value.
+ * Repeated values are found without decoding them or creating a String;
+ * only a value that isn't cached yet is decoded and interned in the dictionary.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+final class Utf8StringCache {
+    private final StringDictionary dictionary;
+
+    // Open addressing with linear probing, the capacity is always a power of two
+    private byte[][] keys = new byte[1024][];
+    private String[] values = new String[1024];
+    private int[] ids = new int[1024];
+    private int[] hashes = new int[1024];
+    private int size;
+
+    Utf8StringCache(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return The canonical String of the bytes between start (inclusive) and end (exclusive)
+     */
+    String lookup(ByteBuffer buffer, int start, int end) {
+        // slot() may grow the table, so it has to run before the array is read
+        int slot = slot(buffer, start, end);
+        return values[slot];
+    }
+
+    /**
+     * @return The dictionary id of the bytes between start (inclusive) and end (exclusive)
+     */
+    int lookupId(ByteBuffer buffer, int start, int end) {
+        int slot = slot(buffer, start, end);
+        return ids[slot];
+    }
+
+    private int slot(ByteBuffer buffer, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+
+        int mask = keys.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            byte[] key = keys[slot];
+            if (key == null) {
+                return add(slot, hash, buffer, start, end);
+            }
+            if (hashes[slot] == hash && matches(key, buffer, start, end)) {
+                dictionary.recordHit();
+                return slot;
+            }
+        }
+    }
+
+    private int add(int slot, int hash, ByteBuffer buffer, int start, int end) {
+        byte[] key = new byte[end - start];
+        buffer.get(start, key);
+        int id = dictionary.id(new String(key, StandardCharsets.UTF_8));
+
+        keys[slot] = key;
+        values[slot] = dictionary.get(id);
+        ids[slot] = id;
+        hashes[slot] = hash;
+        if (++size * 2 <= keys.length) {
+            return slot;
+        }
+        grow();
+        int mask = keys.length - 1;
+        slot = mix(hash) & mask;
+        while (keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldIds = ids;
+        int[] oldHashes = hashes;
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[keys.length];
+        ids = new int[keys.length];
+        hashes = new int[keys.length];
+
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                ids[slot] = oldIds[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+        if (key.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Spreads the high bits, the polynomial hash of short codes only differs in the low bits
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
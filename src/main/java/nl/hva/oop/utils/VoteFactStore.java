@@ -0,0 +1,295 @@
+package nl.hva.oop.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Columnar store of the vote facts of an import: one row per CSV line with a value,
+ * stored in growable primitive int columns instead of Party and Candidate objects.
+ * Regions and field types are stored as their {@link StringDictionary} ids,
+ * rows without a list number or candidate number store -1.
+ * The query methods answer the same questions as {@link CSVImporter#getRegionPartyMap()}
+ * without creating an object per row. Once all rows are added, the store can be queried from several threads.
+ *
+ * @author Remzi Cavdar - ict@remzi.info - <a href="https://remzi.info">remzi.info</a>
+ */
+public final class VoteFactStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StringDictionary dictionary;
+    private final int seatsFieldId;
+    private final int chosenFieldId;
+    private final int candidateVotesFieldId;
+    private final int listVotesFieldId;
+
+    private int[] regionIds = new int[INITIAL_CAPACITY];
+    private int[] listNumbers = new int[INITIAL_CAPACITY];
+    private int[] candidateNumbers = new int[INITIAL_CAPACITY];
+    private int[] fieldTypeIds = new int[INITIAL_CAPACITY];
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // Rows grouped by region id, built on the first query after rows were added.
+    // regionOffsets is written after rowsByRegion: a query that reads it also sees the rows of the same index.
+    private volatile int[] regionOffsets;
+    private int[] rowsByRegion;
+
+    /**
+     * @param dictionary Dictionary that hands out the region and field type ids
+     */
+    public VoteFactStore(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.seatsFieldId = dictionary.id("LijstAantalZetels");
+        this.chosenFieldId = dictionary.id("KandidaatGekozen");
+        this.candidateVotesFieldId = dictionary.id("KandidaatAantalStemmen");
+        this.listVotesFieldId = dictionary.id("LijstAantalStemmen");
+    }
+
+    /**
+     * Appends a row.
+     * @param regionId Dictionary id of the region code
+     * @param listNumber List number of the party, or -1
+     * @param candidateNumber Candidate number, or -1
+     * @param fieldTypeId Dictionary id of the veldType
+     * @param value Value of the row
+     */
+    public void add(int regionId, int listNumber, int candidateNumber, int fieldTypeId, int value) {
+        if (size == values.length) {
+            int capacity = size * 2;
+            regionIds = Arrays.copyOf(regionIds, capacity);
+            listNumbers = Arrays.copyOf(listNumbers, capacity);
+            candidateNumbers = Arrays.copyOf(candidateNumbers, capacity);
+            fieldTypeIds = Arrays.copyOf(fieldTypeIds, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        regionIds[size] = regionId;
+        listNumbers[size] = listNumber;
+        candidateNumbers[size] = candidateNumber;
+        fieldTypeIds[size] = fieldTypeId;
+        values[size] = value;
+        size++;
+        // A volatile read is cheaper than a volatile write on every row; the index is only built by a query
+        if (regionOffsets != null) {
+            regionOffsets = null;
+        }
+    }
+
+    /**
+     * Appends all rows of another store that uses the same dictionary, e.g. a partial store of a parallel import.
+     * @param other Store to append
+     */
+    public void addAll(VoteFactStore other) {
+        if (other.dictionary != dictionary) {
+            throw new IllegalArgumentException("Stores must share the same dictionary");
+        }
+        for (int row = 0; row < other.size; row++) {
+            add(other.regionIds[row], other.listNumbers[row], other.candidateNumbers[row],
+                    other.fieldTypeIds[row], other.values[row]);
+        }
+    }
+
+    // Typed row accessors
+    public int size() {
+        return size;
+    }
+
+    public int getRegionId(int row) {
+        return regionIds[row];
+    }
+
+    public int getListNumber(int row) {
+        return listNumbers[row];
+    }
+
+    public int getCandidateNumber(int row) {
+        return candidateNumbers[row];
+    }
+
+    public int getFieldTypeId(int row) {
+        return fieldTypeIds[row];
+    }
+
+    public int getValue(int row) {
+        return values[row];
+    }
+
+    /**
+     * @param regionCode Region code, e.g. "L528", "P20" or "G0363"
+     * @return Dictionary id of the region code, or -1 if the store doesn't know it
+     */
+    public int regionId(String regionCode) {
+        return dictionary.find(regionCode);
+    }
+
+    /**
+     * Calls the consumer with every row of a region, in import order.
+     * @param regionId Dictionary id of the region code
+     * @param rowConsumer Receives the row numbers
+     */
+    public void forEachRow(int regionId, IntConsumer rowConsumer) {
+        int[] offsets = regionIndex();
+        if (regionId < 0 || regionId + 1 >= offsets.length) {
+            return;
+        }
+        for (int i = offsets[regionId]; i < offsets[regionId + 1]; i++) {
+            rowConsumer.accept(rowsByRegion[i]);
+        }
+    }
+
+    /**
+     * @return Seats of the party in the region (last value wins), or 0
+     */
+    public int getSeats(int regionId, int listNumber) {
+        int seats = 0;
+        int[] offsets = regionIndex();
+        if (regionId < 0 || regionId + 1 >= offsets.length) {
+            return seats;
+        }
+        for (int i = offsets[regionId]; i < offsets[regionId + 1]; i++) {
+            int row = rowsByRegion[i];
+            if (fieldTypeIds[row] == seatsFieldId && listNumbers[row] == listNumber) {
+                seats = values[row];
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * @return Votes of the party in the region as reported by "LijstAantalStemmen", or 0
+     */
+    public long getPartyVotes(int regionId, int listNumber) {
+        long votes = 0;
+        int[] offsets = regionIndex();
+        if (regionId < 0 || regionId + 1 >= offsets.length) {
+            return votes;
+        }
+        for (int i = offsets[regionId]; i < offsets[regionId + 1]; i++) {
+            int row = rowsByRegion[i];
+            if (fieldTypeIds[row] == listVotesFieldId && listNumbers[row] == listNumber) {
+                votes += values[row];
+            }
+        }
+        return votes;
+    }
+
+    /**
+     * @return Highest "KandidaatAantalStemmen" of the candidate in the region, or 0
+     */
+    public int getCandidateVotes(int regionId, int listNumber, int candidateNumber) {
+        int votes = 0;
+        int[] offsets = regionIndex();
+        if (regionId < 0 || regionId + 1 >= offsets.length) {
+            return votes;
+        }
+        for (int i = offsets[regionId]; i < offsets[regionId + 1]; i++) {
+            int row = rowsByRegion[i];
+            if (fieldTypeIds[row] == candidateVotesFieldId && listNumbers[row] == listNumber
+                    && candidateNumbers[row] == candidateNumber && values[row] > votes) {
+                votes = values[row];
+            }
+        }
+        return votes;
+    }
+
+    /**
+     * @return True if the region has a "KandidaatGekozen" row for the candidate
+     */
+    public boolean isChosen(int regionId, int listNumber, int candidateNumber) {
+        int[] offsets = regionIndex();
+        if (regionId < 0 || regionId + 1 >= offsets.length) {
+            return false;
+        }
+        for (int i = offsets[regionId]; i < offsets[regionId + 1]; i++) {
+            int row = rowsByRegion[i];
+            if (fieldTypeIds[row] == chosenFieldId && listNumbers[row] == listNumber
+                    && candidateNumbers[row] == candidateNumber) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The distinct list numbers of the parties in the region, in ascending order
+     */
+    public int[] getListNumbers(int regionId) {
+        return distinct(regionId, -1);
+    }
+
+    /**
+     * @return The distinct candidate numbers of the party in the region, in ascending order
+     */
+    public int[] getCandidateNumbers(int regionId, int listNumber) {
+        return distinct(regionId, listNumber);
+    }
+
+    /**
+     * Collects list numbers (listNumber -1) or the candidate numbers of one list.
+     */
+    private int[] distinct(int regionId, int listNumber) {
+        int[] offsets = regionIndex();
+        if (regionId < 0 || regionId + 1 >= offsets.length) {
+            return new int[0];
+        }
+        int from = offsets[regionId];
+        int to = offsets[regionId + 1];
+        int[] result = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int row = rowsByRegion[i];
+            if (listNumber < 0) {
+                if (listNumbers[row] >= 0) {
+                    result[count++] = listNumbers[row];
+                }
+            } else if (listNumbers[row] == listNumber && candidateNumbers[row] >= 0) {
+                result[count++] = candidateNumbers[row];
+            }
+        }
+        Arrays.sort(result, 0, count);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || result[unique - 1] != result[i]) {
+                result[unique++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    /**
+     * @return The offsets of the regions in rowsByRegion, built if rows were added since the last query
+     */
+    private int[] regionIndex() {
+        int[] offsets = regionOffsets;
+        return offsets != null ? offsets : buildRegionIndex();
+    }
+
+    /**
+     * Groups the row numbers by region id with a counting sort, keeping import order within a region.
+     * Synchronized, so concurrent first queries build the index once.
+     */
+    private synchronized int[] buildRegionIndex() {
+        if (regionOffsets != null) {
+            return regionOffsets;
+        }
+        int maxRegionId = -1;
+        for (int row = 0; row < size; row++) {
+            maxRegionId = Math.max(maxRegionId, regionIds[row]);
+        }
+        int[] offsets = new int[maxRegionId + 2];
+        for (int row = 0; row < size; row++) {
+            offsets[regionIds[row] + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length);
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[next[regionIds[row]]++] = row;
+        }
+        rowsByRegion = rows;
+        regionOffsets = offsets;
+        return offsets;
+    }
+}